@@ -2,6 +2,7 @@ package application;
 
 import controller.*;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.layout.AnchorPane;
@@ -9,12 +10,16 @@ import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 import transitSystem.AdminUser;
+import transitSystem.TransitEvent;
 import transitSystem.TransitManager;
 import java.io.IOException;
 
 /** Represents the class that is responsible for running the program. */
 public class Main extends Application {
 
+  /** The most times per second that a status label is updated. */
+  private static final int MAX_LABEL_UPDATES_PER_SECOND = 10;
+
   public static void main(String[] args) {
     Application.launch();
   }
@@ -48,7 +53,14 @@ public class Main extends Application {
     Scene scene = new Scene(pane);
     tripController.setPreviousScene(scene);
     tripController.resetStationButton();
-    transitManager.addObserver(tripController);
+    // only the newest tap of each card matters to the status label
+    transitManager
+        .getEventDispatcher()
+        .subscribe(
+            tripController,
+            MAX_LABEL_UPDATES_PER_SECOND,
+            event -> ((TransitEvent) event).getCardId(),
+            Platform::runLater);
 
     // AccountBarController and connect to loginController
     FXMLLoader fxmlLoader3 = new FXMLLoader(getClass().getResource("/view/SideBar.fxml"));
@@ -1,8 +1,7 @@
 package controller;
 
 import java.io.IOException;
-import java.util.Observable;
-import java.util.Observer;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
@@ -15,12 +14,13 @@ import javafx.stage.Stage;
 import transitSystem.AccountManager;
 import transitSystem.AdminUser;
 import transitSystem.CardHolderAccount;
+import transitSystem.EventDispatcher;
 
 /**
  * An AccountProfile Controller that accepts inputs from AccountProfile interface and converts them
  * to commands.
  */
-public class AccountProfileController implements Observer {
+public class AccountProfileController implements EventDispatcher.Listener {
 
   /** An AnchorPane that represents user profile page. */
   @FXML private AnchorPane profilePane;
@@ -76,7 +76,7 @@ public class AccountProfileController implements Observer {
   public void clickEditName() throws IOException {
     AdminUser adminUser = LoginController.adminUser;
     AccountManager accountManager = adminUser.getAccountManager();
-    accountManager.addObserver(this);
+    accountManager.getEventDispatcher().subscribe(this, 0, null, Platform::runLater);
     // pops up a new page that user can modify their user name
     FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/view/UpdateName.fxml"));
     AnchorPane anchorPane = fxmlLoader.load();
@@ -170,12 +170,11 @@ public class AccountProfileController implements Observer {
   /**
    * Updates changes when user name is modified in AccountManager.
    *
-   * @param o An observer to be added.
-   * @param arg An object when change occurs in AccountManager.
+   * @param event The CardHolderAccount that changed in AccountManager.
    */
   @Override
-  public void update(Observable o, Object arg) {
-    CardHolderAccount account = (CardHolderAccount) arg;
+  public void onEvent(Object event) {
+    CardHolderAccount account = (CardHolderAccount) event;
     userNameLabel.setText(account.getName());
   }
 }
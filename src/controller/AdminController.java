@@ -22,6 +22,8 @@ import transitSystem.AdminUser;
  */
 public class AdminController {
 
+  /** The number of busiest stations and trips shown for every window of time. */
+  private static final int DASHBOARD_BUSIEST = 5;
   /** A scene that represents the previous page. */
   private Scene previousScene;
   /** A DatePicker for admin user to determine the date to open the system. */
@@ -148,7 +150,20 @@ public class AdminController {
       VBox vBox = fxmlLoader.load();
       AdminController adminController = fxmlLoader.getController();
       AdminUser adminUser = LoginController.adminUser;
-      String report = adminUser.generateReport(date);
+      String report =
+          adminUser.generateReport(date)
+              + System.getProperty("line.separator")
+              + adminUser.generateTripInfo(date)
+              + System.getProperty("line.separator")
+              + adminUser.generateTrafficInfo(DASHBOARD_BUSIEST)
+              + System.getProperty("line.separator")
+              + adminUser.generateFlowInfo(date, DASHBOARD_BUSIEST)
+              + System.getProperty("line.separator")
+              + adminUser.generateLoadInfo(date)
+              + System.getProperty("line.separator")
+              + adminUser.generateRiderInfo(date)
+              + System.getProperty("line.separator")
+              + adminUser.generateDurationInfo(date, DASHBOARD_BUSIEST);
       String[] lines = report.split(System.getProperty("line.separator"));
       int line = lines.length;
       // resize the label in order to fit all the information
@@ -2,7 +2,6 @@ package controller;
 
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
-import java.util.Observer;
 import javafx.fxml.FXML;
 import javafx.scene.Node;
 import javafx.scene.Scene;
@@ -121,7 +120,7 @@ public class ApplyCardController {
       } else if (selectCardType.equals("Weekly Pass")) {
         TransitPassFactory factory = new TransitPassFactory();
         TransitPass transitPass = factory.buildTransitPass(selectCardType, cal1);
-        adminUser.addObserver((Observer) transitPass);
+        adminUser.addDateListener((EventDispatcher.Listener) transitPass);
         cardManager.applyForCard(transitPass);
         // success alert message
         String successAlert =
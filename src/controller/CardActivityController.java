@@ -44,17 +44,22 @@ public class CardActivityController {
     AdminUser adminUser = LoginController.adminUser;
     CardManager cardManager = adminUser.getCardManager();
     TransitPass card = cardManager.findCard(cardId);
+    String recentTrips = adminUser.viewTrips(cardId);
+    String weekTrips = adminUser.viewWeekTrips(cardId);
     String activity =
         String.format(
             "%s"
+                + System.getProperty("line.separator")
+                + "%s"
                 + System.getProperty("line.separator")
                 + System.getProperty("line.separator")
                 + "View three recent trips:"
                 + "%s",
             card.toString(),
-            adminUser.viewTrips(cardId));
+            weekTrips,
+            recentTrips);
     // calculate the number of lines of account activity
-    int line = countLines(card.toString()) + countLines(adminUser.viewTrips(cardId)) + 1;
+    int line = countLines(card.toString()) + countLines(weekTrips) + countLines(recentTrips) + 1;
     // resize the label
     text1.setPrefHeight(line * 28);
     text1.setText(activity);
@@ -3,7 +3,6 @@ package controller;
 import com.jfoenix.controls.JFXPasswordField;
 import com.jfoenix.controls.JFXTextField;
 import java.io.IOException;
-import java.util.Calendar;
 import javafx.fxml.FXML;
 import javafx.scene.Node;
 import javafx.scene.Scene;
@@ -205,7 +204,7 @@ public class LoginController {
           tripController.setDateLabel(adminUser.getLastDateOpen());
           // check the status of a passenger: either on a bus or on subway
           if (transitManager.isInStation(id)) {
-            Tuple<Station, Calendar> inStationInfo = transitManager.inStationInfo(id);
+            Tuple<Station, Long> inStationInfo = transitManager.inStationInfo(id);
             // get station information from the tuple
             Station station = inStationInfo.zero;
             if (station.getStationType().equals("Station")) {
@@ -154,8 +154,9 @@ public class TapController {
           String dateTime = dateLabel.getText() + " " + time;
           Calendar calendar = parseDate(dateTime);
           boolean isLegalEnter =
-              transitManager.checkLegalEnter(transitManager.getLastTrip(cardId), calendar, cardId);
-          String information = transitManager.tapIn(cardId, calendar, station);
+              transitManager.checkLegalEnter(
+                  transitManager.getLastTrip(cardId), calendar.getTimeInMillis(), cardId);
+          String information = transitManager.tapIn(cardId, calendar.getTimeInMillis(), station);
           if (isLegalEnter) {
             successAlertController.setAlertLabel(information);
             Stage stage = (Stage) ((Node) mouseEvent.getSource()).getScene().getWindow();
@@ -204,8 +205,8 @@ public class TapController {
           Calendar calendar = parseDate(dateTime);
           boolean isLegalExit =
               transitManager.checkLegalExit(
-                  transitManager.getLastTrip(cardId), station, calendar, cardId);
-          String information = transitManager.tapOut(cardId, calendar, station);
+                  transitManager.getLastTrip(cardId), station, calendar.getTimeInMillis(), cardId);
+          String information = transitManager.tapOut(cardId, calendar.getTimeInMillis(), station);
           if (isLegalExit) {
             successAlertController.setAlertLabel(information);
             Stage stage = (Stage) ((Node) mouseEvent.getSource()).getScene().getWindow();
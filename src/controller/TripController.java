@@ -14,7 +14,7 @@ import javafx.stage.Stage;
 import transitSystem.*;
 
 /** A Trip Controller that accepts inputs from Trip interface and converts them to commands. */
-public class TripController implements Observer {
+public class TripController implements EventDispatcher.Listener {
 
   /** A TapIn Controller that accepts inputs TapIn interface and converts them to commands. */
   private TapController tapInController;
@@ -55,22 +55,22 @@ public class TripController implements Observer {
   }
 
   /**
-   * Updates changes when clicking on subway or bus icons on Trip interface.
+   * Updates the passenger's status when the card on Trip interface taps in or out.
    *
-   * @param o An observer to be added.
-   * @param arg An object when change occurs on Trip interface.
+   * @param event The TransitEvent of the tap.
    */
   @Override
-  @SuppressWarnings("unchecked")
-  public void update(Observable o, Object arg) {
-    Tuple<Station, Calendar> inStationInfo =
-        ((HashMap<Integer, Tuple<Station, Calendar>>) arg)
-            .get(Integer.parseInt(cardIdLabel.getText()));
+  public void onEvent(Object event) {
+    TransitEvent tap = (TransitEvent) event;
+    // only the card on the screen changes the status
+    if (tap.getCardId() != Integer.parseInt(cardIdLabel.getText())) {
+      return;
+    }
     // check the status of the passenger
-    if (inStationInfo == null) {
+    if (tap.getType() == TransitEvent.Type.EXIT) {
       statusLabel.setText("Free");
     } else {
-      String type = inStationInfo.zero.getStationType();
+      String type = tap.getStation().getStationType();
       if (type.equals("Station")) {
         statusLabel.setText("On Metro");
       } else if (type.equals("Stop")) {
@@ -3,22 +3,29 @@ package transitSystem;
 import transitSystem.Exceptions.AlreadyExistException;
 
 import java.io.*;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Observable;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.logging.Level;
 
 import static java.util.Objects.hash;
 
 /** Represents an account manager which can do some operations to all the accounts. */
-public class AccountManager extends Observable {
+public class AccountManager {
   /** Stores all the CardHolderAccount. */
   private HashMap<String, CardHolderAccount> accounts = new HashMap<>();
-  /** Represents cardManager which helps AccountManager find the card by card id. */
+  /**
+   * Represents cardManager which helps AccountManager find the card by card id. The binding of a
+   * card holds the lock of the AccountManager and then the lock of the CardManager, never the other
+   * way.
+   */
   private CardManager cardManager;
+  /** The cents spent by all the accounts on every day, rebuilt from the accounts when loaded. */
+  private DailySeries costPerDay = new DailySeries();
+  /** Tells the observers about the changed accounts without making the change wait for them. */
+  private EventDispatcher dispatcher = new EventDispatcher("account-events");
 
   /**
    * Initializes AccountManager with CardManager and serialize field accounts.
@@ -43,7 +50,10 @@ public class AccountManager extends Observable {
       } else {
         serializeAccounts();
       }
+      rebuildCostPerDay();
       Logging.getLogger().log(Level.FINE, "Object has been de-serialized.");
+    } catch (InvalidClassException ex) {
+      OldDataFile.setAside("data-Accounts.out", ex);
     } catch (IOException ex) {
       Logging.getLogger()
           .log(
@@ -64,7 +74,7 @@ public class AccountManager extends Observable {
    * @param email the email of the account.
    * @return true if the account exists.
    */
-  public boolean checkAccountExist(String email) {
+  public synchronized boolean checkAccountExist(String email) {
     return accounts.containsKey(email);
   }
 
@@ -75,7 +85,7 @@ public class AccountManager extends Observable {
    * @param password the password of the account.
    * @return true if email matches the password.
    */
-  public boolean emailMatchPassword(String email, String password) {
+  public synchronized boolean emailMatchPassword(String email, String password) {
     CardHolderAccount cardHolderAccount = accounts.get(email);
     return cardHolderAccount.getPassword() == (hash(password));
   }
@@ -87,7 +97,7 @@ public class AccountManager extends Observable {
    * @param email The email of account that it wants to find.
    * @param newName The new name the customer would like to change.
    */
-  public void changeName(String email, String newName) {
+  public synchronized void changeName(String email, String newName) {
     // Check if the account exist or not.
     CardHolderAccount account = accounts.get(email);
     if (account == null) {
@@ -95,21 +105,29 @@ public class AccountManager extends Observable {
     } else {
       account.setName(newName);
       accounts.put(email, account);
-      setChanged();
-      notifyObservers(account);
       serializeAccounts();
+      dispatcher.publish(account);
       Logging.getLogger()
           .log(Level.INFO, "Account " + email + " has changed a new name:" + newName + " .");
     }
   }
 
+  /**
+   * Get the dispatcher that tells the observers about every account whose name is changed.
+   *
+   * @return The EventDispatcher of the accounts.
+   */
+  public EventDispatcher getEventDispatcher() {
+    return dispatcher;
+  }
+
   /**
    * Change the password of the account with the input email.
    *
    * @param email The email of the account.
    * @param newPassword The new password that you want change to.
    */
-  public void changePassword(String email, String newPassword) {
+  public synchronized void changePassword(String email, String newPassword) {
     CardHolderAccount account = accounts.get(email);
     if (account == null) {
       Logging.getLogger().log(Level.WARNING, "There is no account " + email + " been found.");
@@ -128,7 +146,7 @@ public class AccountManager extends Observable {
    * @param email The email of account that it wants to use.
    * @param name The new name that it wants account to use.
    */
-  public void createAccount(String email, String name, String password)
+  public synchronized void createAccount(String email, String name, String password)
           throws AlreadyExistException {
     if (this.checkAccountExist(email)) {
       throw new AlreadyExistException("This account is already exist!");
@@ -146,7 +164,7 @@ public class AccountManager extends Observable {
    * @param email The email of account that it wants to access.
    * @param cardId The id of card which is to be bound to account.
    */
-  public void bindCardToAccount(String email, int cardId) {
+  public synchronized void bindCardToAccount(String email, int cardId) {
     // Get the card and the account.
     CardHolderAccount account = accounts.get(email);
     HashSet<Integer> cards = account.getCards();
@@ -174,7 +192,7 @@ public class AccountManager extends Observable {
    * @param email The email of account that it wants to access.
    * @param cardId The id of card which is to be unbound to account.
    */
-  public void unbindCardToAccount(String email, int cardId) {
+  public synchronized void unbindCardToAccount(String email, int cardId) {
     // Get the card and the account.
     CardHolderAccount account = accounts.get(email);
     HashSet<Integer> cards = account.getCards();
@@ -201,30 +219,89 @@ public class AccountManager extends Observable {
    * @param date The year and month in which we want to track the average cost.
    */
   public double trackAccountAverageCost(String email, String date) {
-    double costPerMonth = 0;
-    double totalTimes = 0;
+    return trackAccountAverageCost(email, date, date);
+  }
+
+  /**
+   * Tracks the average cost of account from a month to another month.
+   *
+   * @param email The email of the account.
+   * @param fromMonth The first month of the range, in the format "yyyy-MM".
+   * @param toMonth The last month of the range, in the format "yyyy-MM".
+   * @return The cost per deduction in the months; NaN if nothing was deducted.
+   */
+  public double trackAccountAverageCost(String email, String fromMonth, String toMonth) {
+    Double[] costTimes = trackAccountCost(email, fromMonth, toMonth);
+    return costTimes[1] / costTimes[0];
+  }
+
+  /**
+   * Tracks the change of the cost of account in a month compared with the same month a year
+   * before.
+   *
+   * @param email The email of the account.
+   * @param date The year and month, in the format "yyyy-MM".
+   * @return The change as a fraction of the cost a year before, e.g. 0.1 for 10% more; NaN or
+   *     infinity if nothing was deducted a year before.
+   */
+  public double trackAccountCostYearOverYear(String email, String date) {
+    Integer month = EpochDay.parseMonth(date);
+    if (month == null) {
+      Logging.getLogger().log(Level.WARNING, "Invalid month {} for account {}", date, email);
+      return Double.NaN;
+    }
+    String lastYear = EpochDay.formatMonth(month - 12);
+    double cost = trackAccountCost(email, date, date)[1];
+    double lastYearCost = trackAccountCost(email, lastYear, lastYear)[1];
+    return (cost - lastYearCost) / lastYearCost;
+  }
+
+  /**
+   * Tracks the times and cost of account in every month of a range.
+   *
+   * @param email The email of the account.
+   * @param fromMonth The first month of the range, in the format "yyyy-MM".
+   * @param toMonth The last month of the range, in the format "yyyy-MM".
+   * @return The months in order with {times, cost}; empty if the account or a month is invalid.
+   */
+  public synchronized LinkedHashMap<String, Double[]> trackAccountMonthlyCost(
+      String email, String fromMonth, String toMonth) {
+    LinkedHashMap<String, Double[]> months = new LinkedHashMap<>();
     CardHolderAccount account = findAccount(email);
-    if (account != null) {
-      HashMap<String, Double[]> costPerDay = account.getCostPerDay();
-      for (String time : costPerDay.keySet()) {
-        if (time.substring(0, 7).equals(date)) {
-          costPerMonth += costPerDay.get(time)[1];
-          totalTimes += costPerDay.get(time)[0];
-        }
-      }
-      System.out.println(
-          "In "
-              + date
-              + ", "
-              + "the "
-              + "average cost of account "
-              + email
-              + "is "
-              + costPerMonth / totalTimes);
-    } else {
-      Logging.getLogger().log(Level.WARNING, "There is no account " + email + " been found.");
+    Integer from = EpochDay.parseMonth(fromMonth);
+    Integer to = EpochDay.parseMonth(toMonth);
+    if (account == null || from == null || to == null) {
+      Logging.getLogger()
+          .log(Level.WARNING, "Invalid months {} to {} for account {}", fromMonth, toMonth, email);
+      return months;
+    }
+    DailyLedger costPerMonth = account.getCostPerMonth();
+    for (int month = from; month <= to; month++) {
+      Double[] costTimes = new Double[2];
+      costTimes[0] = (double) costPerMonth.count(month);
+      costTimes[1] = costPerMonth.amount(month);
+      months.put(EpochDay.formatMonth(month), costTimes);
+    }
+    return months;
+  }
+
+  /**
+   * Add up the times and cost of account in a range of months.
+   *
+   * @param email The email of the account.
+   * @param fromMonth The first month of the range, in the format "yyyy-MM".
+   * @param toMonth The last month of the range, in the format "yyyy-MM".
+   * @return {times, cost} of the months.
+   */
+  private Double[] trackAccountCost(String email, String fromMonth, String toMonth) {
+    Double[] total = new Double[2];
+    total[0] = 0.0;
+    total[1] = 0.0;
+    for (Double[] costTimes : trackAccountMonthlyCost(email, fromMonth, toMonth).values()) {
+      total[0] = total[0] + costTimes[0];
+      total[1] = total[1] + costTimes[1];
     }
-    return costPerMonth / totalTimes;
+    return total;
   }
 
   /**
@@ -233,43 +310,56 @@ public class AccountManager extends Observable {
    * @param date The specific date that we want to track the total cost.
    * @return total cost of all the accounts in a specific date.
    */
-  public double trackTotalCostPerDay(String date) {
-    double totalCost = 0;
+  public synchronized double trackTotalCostPerDay(String date) {
     // date format: YYYY-MM-DD
+    Integer day = EpochDay.parse(date);
+    if (day == null) {
+      return 0;
+    }
+    return costPerDay.get(day) / 100.0;
+  }
+
+  /**
+   * Tracks total cost of all the account from a date to another date.
+   *
+   * @param fromDate The first date of the range, in the format "yyyy-MM-dd".
+   * @param toDate The last date of the range, in the format "yyyy-MM-dd".
+   * @return total cost of all the accounts in the range, 0 if a date is not valid.
+   */
+  public synchronized double trackTotalCostBetween(String fromDate, String toDate) {
+    Integer fromDay = EpochDay.parse(fromDate);
+    Integer toDay = EpochDay.parse(toDate);
+    if (fromDay == null || toDay == null) {
+      return 0;
+    }
+    return costPerDay.sum(fromDay, toDay) / 100.0;
+  }
+
+  /** Rebuild the total cost of every day from the cost records of the accounts. */
+  private void rebuildCostPerDay() {
+    costPerDay = new DailySeries();
     for (CardHolderAccount account : accounts.values()) {
-      HashMap<String, Double[]> costPerDay = account.getCostPerDay();
-      for (String costTimes : costPerDay.keySet()) {
-        if (costTimes.equals(date)) {
-          totalCost += costPerDay.get(costTimes)[1];
-        }
+      DailyLedger accountCostPerDay = account.getCostPerDay();
+      for (int i = 0; i < accountCostPerDay.size(); i++) {
+        costPerDay.add(accountCostPerDay.dayAt(i), accountCostPerDay.centsAt(i));
       }
     }
-    return totalCost;
   }
 
   /**
    * Updates the cost information of an account with an email every time the money is deducted.
    *
    * @param ownerEmail The email which access to the card holder account.
-   * @param time The specific time that the money is deducted and cost information needs to be
+   * @param time The epoch day that the money is deducted and cost information needs to be
    *     updated.
    * @param fare The fare which increase the total cost of this account.
    */
-  void updateAccountCostInformation(String ownerEmail, String time, double fare) {
+  synchronized void updateAccountCostInformation(String ownerEmail, int time, double fare) {
     if (ownerEmail != null) {
       CardHolderAccount account = this.findAccount(ownerEmail);
-      System.out.println(account.getName());
-      HashMap<String, Double[]> accountCostPerDay = account.getCostPerDay();
-      if (accountCostPerDay.containsKey(time)) {
-        Double[] costTimes = accountCostPerDay.get(time);
-        costTimes[0] = costTimes[0] + 1;
-        costTimes[1] = costTimes[1] + fare;
-      } else {
-        Double[] newCostTimes = new Double[2];
-        newCostTimes[0] = 1.0;
-        newCostTimes[1] = fare;
-        accountCostPerDay.put(time, newCostTimes);
-      }
+      Logging.getLogger().log(Level.FINE, "Update the cost of account {}", account.getName());
+      account.addCost(time, fare);
+      costPerDay.add(time, DailyLedger.toCents(fare));
     }
     serializeAccounts();
   }
@@ -280,48 +370,60 @@ public class AccountManager extends Observable {
    * @param email The email of the account.
    * @return card holder account that is found by email.
    */
-  public CardHolderAccount findAccount(String email) {
+  public synchronized CardHolderAccount findAccount(String email) {
     return accounts.get(email);
   }
 
   /**
-   * Delete the old revenue record of the account.
+   * Delete the total cost of the days before a day, without walking the accounts.
    *
-   * @param currTime The current time.
+   * @param firstKeptDay The first epoch day that is kept.
    */
-  void deleteAccountRevenueRecord(Calendar currTime) {
-    boolean deleted = false;
-    long teyYearsInMilli = 315_569_520_000L;
-    for (CardHolderAccount user : accounts.values()) {
-      HashMap<String, Double[]> costPerDay = user.getCostPerDay();
-      for (String key : costPerDay.keySet()) {
-        try {
-          // change the date format to calendar
-          SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-          Calendar cal1 = Calendar.getInstance();
-          cal1.setTime(sdf.parse(key));
-          // set to zero
-          if ((currTime.getTimeInMillis() - cal1.getTimeInMillis()) > teyYearsInMilli) {
-            Double[] record = new Double[2];
-            record[0] = 0.0;
-            record[1] = 0.0;
-            costPerDay.put(key, record);
-            deleted = true;
-          }
-        } catch (ParseException e) {
-          e.printStackTrace();
-        }
+  synchronized void dropExpiredDays(int firstKeptDay) {
+    costPerDay.clearBefore(firstKeptDay);
+  }
+
+  /**
+   * Get the emails of all the accounts.
+   *
+   * @return A copy of the emails.
+   */
+  synchronized List<String> emails() {
+    return new ArrayList<>(accounts.keySet());
+  }
+
+  /**
+   * Delete the cost of some accounts on the days before a day. The days are taken out of the
+   * monthly cost of the accounts as well.
+   *
+   * @param emails The emails of the accounts.
+   * @param firstKeptDay The first epoch day that is kept.
+   * @return The number of accounts that had cost deleted.
+   */
+  synchronized int deleteCostBefore(List<String> emails, int firstKeptDay) {
+    int deleted = 0;
+    for (String email : emails) {
+      CardHolderAccount account = accounts.get(email);
+      if (account != null && account.deleteCostBefore(firstKeptDay)) {
+        deleted++;
       }
     }
-    if (deleted) {
-      Logging.getLogger().log(Level.INFO, "Delete Account revenue record that over ten years ago");
-    }
+    return deleted;
+  }
+
+  /**
+   * Save the accounts after they are purged.
+   *
+   * @return The size of the file of the accounts in bytes.
+   */
+  synchronized long saveAccounts() {
     serializeAccounts();
+    return new File("data-Accounts.out").length();
   }
 
   /** Serializes the accounts and catches the error. */
   @SuppressWarnings("unchecked")
-  private void serializeAccounts() {
+  private synchronized void serializeAccounts() {
     try {
       // Saving of object in a file
       FileOutputStream file = new FileOutputStream("data-Accounts.out");
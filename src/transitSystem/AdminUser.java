@@ -1,13 +1,12 @@
 package transitSystem;
 
 import java.io.*;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 
 /** Represent the AdminUser that keep tracks of the entire system. */
-public class AdminUser extends Observable {
+public class AdminUser {
 
   /** Store the transitManager. */
   private TransitManager transitManager;
@@ -18,6 +17,29 @@ public class AdminUser extends Observable {
   /** Store the accountManager. */
   private AccountManager accountManager;
 
+  /** Publish the events of the whole system to the subscribers. */
+  private final EventPublisher<TransitEvent> events = new EventPublisher<>("transit-publisher");
+
+  /** The first day that is kept; the days before it are treated as deleted. */
+  private final Retention retention = new Retention();
+
+  /** The totals of the daily reports that did not change since they were built. */
+  private final ReportCache reportCache = new ReportCache();
+
+  /** Compacts and purges the records in the background after the system is closed. */
+  private final MaintenanceWorker maintenance =
+      new MaintenanceWorker(
+          "maintenance",
+          Long.getLong(
+              "transitSystem.maintenanceBytesPerSecond",
+              MaintenanceWorker.DEFAULT_BYTES_PER_SECOND));
+
+  /** Write the events of the system to the binary audit files. */
+  private final AuditLog auditLog = new AuditLog(new File("audit"));
+
+  /** The listeners, such as the weekly passes, that are told about every new open date. */
+  private final List<EventDispatcher.Listener> dateListeners = new CopyOnWriteArrayList<>();
+
   /** Store a boolean to detect is the system opened. */
   private boolean isClosed = true;
 
@@ -77,29 +99,51 @@ public class AdminUser extends Observable {
   }
 
   /**
-   * Set the system to closed state or open state.
+   * Set the system to closed state or open state. Closing returns right away and the records are
+   * compacted and purged in the background. Opening does not wait for that to finish: a tap holds
+   * the locks of the managers that every maintenance step takes, so they never run at once.
    *
    * @param closed False if the system is opened and true if the the system is closed.
    */
   public void setClosed(boolean closed) {
     isClosed = closed;
     serializeDateInfo();
+    Integer today = EpochDay.parse(getLastDateOpen());
+    if (today != null) {
+      events.submit(
+          new TransitEvent(
+              closed ? TransitEvent.Type.SYSTEM_CLOSE : TransitEvent.Type.SYSTEM_OPEN,
+              0,
+              null,
+              closed ? currentTime() : EpochDay.startMillis(today)));
+    }
     if (closed) {
-      try {
-        String lastDateOpen = getLastDateOpen();
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-        Calendar cal1 = Calendar.getInstance();
-        cal1.setTime(sdf.parse(lastDateOpen));
-        transitManager.deleteOldTripRecord(cal1);
-        transitManager.deleteCountStationsPerDay(cal1);
-        cardManager.deleteCardRevenueRecord(cal1);
-        accountManager.deleteAccountRevenueRecord(cal1);
-      } catch (ParseException e) {
-        e.printStackTrace();
+      if (today != null) {
+        expireRecords(today);
+        reportCache.clear();
+      } else {
+        Logging.getLogger()
+            .log(Level.WARNING, "Invalid last open date when closing: " + getLastDateOpen());
       }
     }
   }
 
+  /**
+   * Get the current time of the system, which is simulated: the time of the latest tap on the day
+   * the system was last opened, or the start of that day if there was no tap yet. The events that
+   * are not taps are stamped with it, so the events stay in order.
+   *
+   * @return The time in milliseconds.
+   */
+  long currentTime() {
+    long latestTap = transitManager.getMostRecentTime();
+    Integer day = EpochDay.parse(getLastDateOpen());
+    if (day == null) {
+      return latestTap == Long.MIN_VALUE ? System.currentTimeMillis() : latestTap;
+    }
+    return Math.max(EpochDay.startMillis(day), latestTap);
+  }
+
   /** Check if any person were inside the station that prevents system close */
   public boolean isAbleClose() {
     return transitManager.inStationPopulation() == 0;
@@ -114,8 +158,19 @@ public class AdminUser extends Observable {
   public void setLastDateOpen(String lastDateOpen) {
     this.lastDateOpen = lastDateOpen;
     serializeDateInfo();
-    this.setChanged();
-    this.notifyObservers(lastDateOpen);
+    for (EventDispatcher.Listener listener : dateListeners) {
+      listener.onEvent(lastDateOpen);
+    }
+  }
+
+  /**
+   * Tell a listener about every new open date, as a "yyyy-MM-dd" string, before setLastDateOpen
+   * returns.
+   *
+   * @param listener The listener, such as a WeeklyPass.
+   */
+  public void addDateListener(EventDispatcher.Listener listener) {
+    dateListeners.add(listener);
   }
 
   /** Get last date open */
@@ -135,128 +190,571 @@ public class AdminUser extends Observable {
    * @param cardId The cardId of the card.
    */
   public String viewTrips(Integer cardId) {
-    // get the TripRecord
-    StringBuilder recentTrip = new StringBuilder();
-    HashMap<Integer, ArrayList<ContinuousTrip>> allFiles = this.transitManager.getTripRecord();
-    if (this.transitManager.getTripRecord().containsKey(cardId)) {
-      ArrayList<ContinuousTrip> allCardsTrips = allFiles.get(cardId);
-      getLastThreeTrips(recentTrip, allCardsTrips);
-    } else {
-      recentTrip = new StringBuilder("no recent trips");
-    }
-    // get the 3 recent trip
-    return recentTrip.toString();
+    return transitManager.viewRecentTrips(cardId);
   }
 
   /**
-   * View the 3 most recent trips of one card.
+   * Print the number of continuous trips of one card in the week that ends on the last date the
+   * system was open.
    *
-   * @param accountEmail The cardId of the card.
+   * @param cardId The cardId of the card.
+   * @return The number of trips.
+   */
+  public String viewWeekTrips(int cardId) {
+    Integer day = EpochDay.parse(lastDateOpen);
+    if (day == null) {
+      return "0 trips in the last week";
+    }
+    int trips =
+        transitManager.cardTripsBetween(cardId, EpochDay.format(day - 6), lastDateOpen).size();
+    return trips + " trips in the week to " + lastDateOpen;
+  }
+
+  /**
+   * View the 3 most recent trips of all the cards of an account.
+   *
+   * @param accountEmail The email of the account.
    */
   public String accountViewTrips(String accountEmail) {
+    String recentTrips = viewNextTrips(accountTripCursor(accountEmail), 3);
+    return recentTrips.isEmpty() ? "no recent trips" : recentTrips;
+  }
+
+  /**
+   * Create a cursor over the trips of all the cards of an account, from the most recent to the
+   * oldest.
+   *
+   * @param accountEmail The email of the account.
+   * @return The cursor, at the most recent trip.
+   */
+  public TripCursor accountTripCursor(String accountEmail) {
     CardHolderAccount account = accountManager.findAccount(accountEmail);
-    // get the TripRecord
+    return new TripCursor(
+        transitManager::tripsBefore,
+        new ArrayList<>(account.getCards()),
+        retention.firstKeptMillis());
+  }
+
+  /**
+   * View the next trips of a cursor, numbered from where the previous page ended.
+   *
+   * @param cursor The cursor over the trips.
+   * @param n The largest number of trips.
+   * @return The trips, empty if there is no older trip.
+   */
+  public String viewNextTrips(TripCursor cursor, int n) {
     StringBuilder recentTrip = new StringBuilder();
-    HashMap<Integer, ArrayList<ContinuousTrip>> allFiles = this.transitManager.getTripRecord();
-
-    ArrayList<ContinuousTrip> AllCardsThreeTrips = new ArrayList<>();
-    for (Integer cardId : account.getCards()) {
-      if (this.transitManager.getTripRecord().containsKey(cardId)) {
-        ArrayList<ContinuousTrip> cardsTrips = allFiles.get(cardId);
-        for (int i = cardsTrips.size() - 1; i >= 0; i--) {
-          AllCardsThreeTrips.add(cardsTrips.get(i));
-        }
-      }
+    int counter = cursor.getReturned() + 1;
+    for (ContinuousTrip trip : cursor.next(n)) {
+      recentTrip.append(System.getProperty("line.separator"));
+      recentTrip.append(counter);
+      recentTrip.append(".");
+      recentTrip.append(trip.toString());
+      recentTrip.append(System.getProperty("line.separator"));
+      counter++;
     }
-    AllCardsThreeTrips.sort(new TripTimeComparator());
-    if (AllCardsThreeTrips.size() == 0) {
-      recentTrip.append("no recent trips");
-    } else {
-      getLastThreeTrips(recentTrip, AllCardsThreeTrips);
-    }
-    // get the 3 recent trip
     return recentTrip.toString();
   }
 
   /**
-   * Get the last three trips by the list of continuous trips.
+   * Print all the number of stations traveled in all finished trips and all the fares collected.
    *
-   * @param recentTrip A string that combine information of recent trip.
-   * @param list A list of all the continuous trips.
+   * @param date The date that the user want to check.
    */
-  private void getLastThreeTrips(StringBuilder recentTrip, ArrayList<ContinuousTrip> list) {
-    int counter = 1;
-    for (int i = list.size() - 1; i >= 0; i--) {
-      if (counter <= 3) {
-        recentTrip.append(System.getProperty("line.separator"));
-        recentTrip.append(counter);
-        recentTrip.append(".");
-        recentTrip.append(list.get(i).toString());
-        recentTrip.append(System.getProperty("line.separator"));
-        counter++;
-      } else {
-        break;
+  public String generateReport(String date) {
+    DailyReport report = buildReport(date);
+    if (report == null) {
+      return "Invalid report date: " + date;
+    }
+    return report.toString();
+  }
+
+  /**
+   * Build the report of the system on a date. The totals of the date are taken from the report
+   * cache if no deduction or trip of that date happened since they were last built.
+   *
+   * @param date The date that the user want to check, in the format "yyyy-MM-dd".
+   * @return The report, null if the date is not valid.
+   */
+  public DailyReport buildReport(String date) {
+    Integer day = EpochDay.parse(date);
+    if (day == null) {
+      return null;
+    }
+    ReportCache.Totals totals = reportCache.get(day);
+    if (totals == null) {
+      long stamp = reportCache.stamp();
+      totals = buildTotals(date, day);
+      reportCache.put(day, totals, stamp);
+    }
+    return new DailyReport(
+        date,
+        transitManager.inStationPopulation(),
+        crowdingInfo(),
+        totals.stationsPassed,
+        totals.accountCost,
+        totals.cardRevenue,
+        totals.cardTimes,
+        totals.cardTypeInfo);
+  }
+
+  /**
+   * Compute the totals of the report on a date.
+   *
+   * @param date The date, in the format "yyyy-MM-dd".
+   * @param day The epoch day of the date.
+   * @return The totals of the date.
+   */
+  private ReportCache.Totals buildTotals(String date, int day) {
+    Integer stations = this.transitManager.getCountStationsPerDay().get(day);
+    return cardManager.reportTotals(
+        day, (stations == null) ? 0 : stations, accountManager.trackTotalCostPerDay(date));
+  }
+
+  /**
+   * Build the report of the system from a date to another date. Every number is found in O(1)
+   * time from the cumulative sums of the days, however long the range is.
+   *
+   * @param fromDate The first date of the range, in the format "yyyy-MM-dd".
+   * @param toDate The last date of the range, in the format "yyyy-MM-dd".
+   * @return The report, null if a date is not valid or the range is empty.
+   */
+  public PeriodReport buildPeriodReport(String fromDate, String toDate) {
+    Integer fromDay = EpochDay.parse(fromDate);
+    Integer toDay = EpochDay.parse(toDate);
+    if (fromDay == null || toDay == null || fromDay > toDay) {
+      return null;
+    }
+    return new PeriodReport(
+        fromDate,
+        toDate,
+        transitManager.countStationsBetween(fromDay, toDay),
+        accountManager.trackTotalCostBetween(fromDate, toDate),
+        cardManager.trackTotalRevenueBetween(fromDay, toDay),
+        cardManager.trackTotalTimesBetween(fromDay, toDay));
+  }
+
+  /**
+   * Build the report of the system on the week, Monday to Sunday, of a date.
+   *
+   * @param date A date of the week, in the format "yyyy-MM-dd".
+   * @return The report, null if the date is not valid.
+   */
+  public PeriodReport buildWeekReport(String date) {
+    Integer day = EpochDay.parse(date);
+    if (day == null) {
+      return null;
+    }
+    // 1970-01-01 was a Thursday
+    int monday = day - Math.floorMod(day + 3, 7);
+    return buildPeriodReport(EpochDay.format(monday), EpochDay.format(monday + 6));
+  }
+
+  /**
+   * Build the report of the system on a month.
+   *
+   * @param month The month, in the format "yyyy-MM".
+   * @return The report, null if the month is not valid.
+   */
+  public PeriodReport buildMonthReport(String month) {
+    Integer epochMonth = EpochDay.parseMonth(month);
+    if (epochMonth == null) {
+      return null;
+    }
+    String first = month + "-01";
+    String last = EpochDay.format(EpochDay.firstDayOf(epochMonth + 1) - 1);
+    return buildPeriodReport(first, last);
+  }
+
+  /**
+   * Print the number of stations traveled and the fares collected from a date to another date.
+   *
+   * @param fromDate The first date of the range, in the format "yyyy-MM-dd".
+   * @param toDate The last date of the range, in the format "yyyy-MM-dd".
+   * @return The report.
+   */
+  public String generatePeriodReport(String fromDate, String toDate) {
+    PeriodReport report = buildPeriodReport(fromDate, toDate);
+    if (report == null) {
+      return "Invalid report dates: " + fromDate + " to " + toDate;
+    }
+    return report.toString();
+  }
+
+  /**
+   * Print the stations with the most taps and the pairs of stations with the most trips in the
+   * last 15 minutes, hour and day before the latest tap.
+   *
+   * @param k The number of stations and pairs of every window, at most 32.
+   * @return The busiest stations and trips, with their approximate counts.
+   */
+  public String generateTrafficInfo(int k) {
+    String newLine = System.getProperty("line.separator");
+    StringBuilder info = new StringBuilder();
+    for (TrafficWindow window : TrafficWindow.values()) {
+      if (info.length() > 0) {
+        info.append(newLine);
+      }
+      info.append("Busiest stations/stops, ").append(describe(window)).append(':');
+      for (Tuple<Station, Long> station : transitManager.busiestStations(window, k)) {
+        info.append(newLine)
+            .append(station.zero.getLocation())
+            .append(' ')
+            .append(station.zero.getStationType())
+            .append(": ")
+            .append(station.one)
+            .append(" taps");
+      }
+      info.append(newLine).append("Busiest trips, ").append(describe(window)).append(':');
+      for (Tuple<Tuple<Station, Station>, Long> flow : transitManager.busiestFlows(window, k)) {
+        info.append(newLine)
+            .append(flow.zero.zero.getLocation())
+            .append(' ')
+            .append(flow.zero.zero.getStationType())
+            .append(" -> ")
+            .append(flow.zero.one.getLocation())
+            .append(' ')
+            .append(flow.zero.one.getStationType())
+            .append(": ")
+            .append(flow.one)
+            .append(" trips");
       }
     }
+    return info.toString();
   }
 
   /**
-   * Print all the number of stations traveled in all finished trips and all the fares collected.
+   * Print the number of continuous trips and of the cards that made them on a date and in the
+   * week that ends on it.
    *
-   * @param date The date that the user want to check.
+   * @param date The date in the format "yyyy-MM-dd".
+   * @return The trips and cards of the date and the week.
    */
-  public String generateReport(String date) {
-    HashMap<String, Integer> transitRecord = this.transitManager.getCountStationsPerDay();
-    int numOftStations = 0;
-    if (transitRecord.containsKey(date)) {
-      numOftStations += transitRecord.get(date);
-    }
-    Double totalCost = cardManager.trackTotalRevenuePerDay(date);
-    Double accountTotalCost = accountManager.trackTotalCostPerDay(date);
-    Double totalTimes = cardManager.trackTotalTimesPerDay(date);
-    String format =
-        String.format("The number of stations/stops that users passed: %d", numOftStations);
-    StringBuilder speInfo = specifiedCardInfo(date);
-    return "Current population inside station is: "
-        + transitManager.inStationPopulation()
-        + System.getProperty("line.separator")
-        + "You are viewing system report on: "
+  public String generateTripInfo(String date) {
+    Integer day = EpochDay.parse(date);
+    if (day == null) {
+      return "Invalid report date: " + date;
+    }
+    return "Continuous trips on "
         + date
+        + ": "
+        + describe(transitManager.tripsOn(date))
         + System.getProperty("line.separator")
-        + format
-        + System.getProperty("line.separator")
-        + "The total account cost is: $"
-        + accountTotalCost
-        + System.getProperty("line.separator")
-        + "The card total cost is: $"
-        + totalCost
-        + System.getProperty("line.separator")
-        + "The card total deduct times is: "
-        + totalTimes.intValue()
-        + speInfo;
+        + "Continuous trips in the week to "
+        + date
+        + ": "
+        + describe(transitManager.tripsBetween(EpochDay.format(day - 6), date));
+  }
+
+  /**
+   * Print the pairs of stations with the most trips on a date, with the number of trips back.
+   *
+   * @param date The date in the format "yyyy-MM-dd".
+   * @param k The number of pairs.
+   * @return The pairs with their number of trips.
+   */
+  public String generateFlowInfo(String date, int k) {
+    if (EpochDay.parse(date) == null) {
+      return "Invalid report date: " + date;
+    }
+    String newLine = System.getProperty("line.separator");
+    StringBuilder info = new StringBuilder("Most trips on " + date + ":");
+    for (Tuple<Tuple<Station, Station>, Integer> flow : transitManager.topFlows(date, date, k)) {
+      Station origin = flow.zero.zero;
+      Station destination = flow.zero.one;
+      info.append(newLine)
+          .append(describe(origin))
+          .append(" -> ")
+          .append(describe(destination))
+          .append(": ")
+          .append(flow.one)
+          .append(" trips, ")
+          .append(transitManager.countFlow(date, destination, origin))
+          .append(" back");
+    }
+    return info.toString();
+  }
+
+  /**
+   * Print the busiest hour of every station on a date, with its taps in and out and how its load
+   * changed from the same hour of the day before. The stations without taps are left out.
+   *
+   * @param date The date in the format "yyyy-MM-dd".
+   * @return The busiest hour of every station.
+   */
+  public String generateLoadInfo(String date) {
+    Integer day = EpochDay.parse(date);
+    if (day == null) {
+      return "Invalid report date: " + date;
+    }
+    // each day is read once for all the stations
+    HourlyLoad load = transitManager.loadOn(day);
+    HourlyLoad loadBefore = transitManager.loadOn(day - 1);
+    String newLine = System.getProperty("line.separator");
+    StringBuilder info = new StringBuilder("Busiest hour of the stations/stops on " + date + ":");
+    for (int id = 0; id < transitManager.stationCount(); id++) {
+      int hour = load.peakHour(id);
+      if (hour < 0) {
+        continue;
+      }
+      int taps = load.load(id)[hour];
+      int change = taps - loadBefore.load(id)[hour];
+      info.append(newLine)
+          .append(describe(transitManager.getStation(id)))
+          .append(String.format(": %02d:00 with ", hour))
+          .append(taps)
+          .append(" taps (")
+          .append(load.entries(id)[hour])
+          .append(" in, ")
+          .append(load.exits(id)[hour])
+          .append(" out), ")
+          .append(change >= 0 ? "+" : "")
+          .append(change)
+          .append(" on the day before");
+    }
+    return info.toString();
+  }
+
+  /**
+   * Print the approximate number of distinct cards that used every line and every station on a
+   * date and in the week that ends on it. The stations without riders are left out.
+   *
+   * @param date The date in the format "yyyy-MM-dd".
+   * @return The riders of every line and station.
+   */
+  public String generateRiderInfo(String date) {
+    Integer day = EpochDay.parse(date);
+    if (day == null) {
+      return "Invalid report date: " + date;
+    }
+    // the partitions are read once, the date and the six days before it
+    StationRiders dayRiders = transitManager.ridersBetween(day, day);
+    StationRiders weekRiders = transitManager.ridersBetween(day - 6, day - 1);
+    weekRiders.mergeFrom(dayRiders);
+    String newLine = System.getProperty("line.separator");
+    StringBuilder info =
+        new StringBuilder("Riders on " + date + " and in the week to " + date + ":");
+    for (int lineId = 0; lineId < transitManager.getLineCount(); lineId++) {
+      int[] stations = transitManager.lineStations(lineId);
+      info.append(newLine)
+          .append("Line ")
+          .append(lineId + 1)
+          .append(" (")
+          .append(describe(transitManager.getStation(stations[0])))
+          .append(" - ")
+          .append(describe(transitManager.getStation(stations[stations.length - 1])))
+          .append("): ")
+          .append(dayRiders.count(stations))
+          .append(" on the day, ")
+          .append(weekRiders.count(stations))
+          .append(" in the week");
+    }
+    for (int id = 0; id < transitManager.stationCount(); id++) {
+      int[] station = {id};
+      long riders = dayRiders.count(station);
+      if (riders > 0) {
+        info.append(newLine)
+            .append(describe(transitManager.getStation(id)))
+            .append(": ")
+            .append(riders)
+            .append(" on the day, ")
+            .append(weekRiders.count(station))
+            .append(" in the week");
+      }
+    }
+    return info.toString();
   }
 
   /**
-   * Lists out all the details of a card.
+   * Print the median and the 95th percentile of the durations of the trips on every line and
+   * between the pairs of stations with the most trips, in the week that ends on a date.
    *
-   * @param date The card information will be print based on the date.
-   * @return A StringBuilder that represents the card information.
+   * @param date The date in the format "yyyy-MM-dd".
+   * @param k The number of pairs.
+   * @return The durations of every line and pair.
    */
-  private StringBuilder specifiedCardInfo(String date) {
-    HashMap<String, Double[]> specifyInfo = cardManager.trackTotalInfo(date);
-    StringBuilder speInfo = new StringBuilder();
-    for (String cardType : specifyInfo.keySet()) {
-      speInfo.append(System.getProperty("line.separator"));
-      speInfo.append(cardType);
-      speInfo.append(": ");
-      speInfo.append(System.getProperty("line.separator"));
-      speInfo.append("Total times: ");
-      speInfo.append(specifyInfo.get(cardType)[0].intValue());
-      speInfo.append(System.getProperty("line.separator"));
-      speInfo.append("Total fare: $");
-      speInfo.append(specifyInfo.get(cardType)[1]);
+  public String generateDurationInfo(String date, int k) {
+    Integer day = EpochDay.parse(date);
+    if (day == null) {
+      return "Invalid report date: " + date;
+    }
+    String weekStart = EpochDay.format(day - 6);
+    // the partitions of the week are read once for all the lines and pairs
+    DayDurations durations = transitManager.durationsBetween(weekStart, date);
+    String newLine = System.getProperty("line.separator");
+    StringBuilder info =
+        new StringBuilder("Trip durations in the week to " + date + " (median, 95th percentile):");
+    for (int lineId = 0; lineId < transitManager.getLineCount(); lineId++) {
+      info.append(newLine)
+          .append("Line ")
+          .append(lineId + 1)
+          .append(": ")
+          .append(describe(durations.linePercentiles(lineId, 50, 95)));
     }
-    return speInfo;
+    for (Tuple<Tuple<Station, Station>, Integer> flow :
+        transitManager.topFlows(weekStart, date, k)) {
+      Station origin = flow.zero.zero;
+      Station destination = flow.zero.one;
+      info.append(newLine)
+          .append(describe(origin))
+          .append(" -> ")
+          .append(describe(destination))
+          .append(": ")
+          .append(describe(durations.pairPercentiles(origin.getId(), destination.getId(), 50, 95)));
+    }
+    return info.toString();
+  }
+
+  /**
+   * Describe some trips for the reports.
+   *
+   * @param trips The {card id, trip} of every trip.
+   * @return The number of trips and of the distinct cards that made them.
+   */
+  private static String describe(ArrayList<Tuple<Integer, ContinuousTrip>> trips) {
+    HashSet<Integer> cards = new HashSet<>();
+    for (Tuple<Integer, ContinuousTrip> trip : trips) {
+      cards.add(trip.zero);
+    }
+    return trips.size() + " by " + cards.size() + " cards";
+  }
+
+  /**
+   * Describe the percentiles of the durations of some trips for the reports.
+   *
+   * @param durations The duration in seconds of every percentile, -1 if there is no trip.
+   * @return The durations in the format "m:ss", separated by commas.
+   */
+  private static String describe(long[] durations) {
+    if (durations.length == 0 || durations[0] < 0) {
+      return "no trips";
+    }
+    StringBuilder described = new StringBuilder();
+    for (long seconds : durations) {
+      if (described.length() > 0) {
+        described.append(", ");
+      }
+      described.append(String.format("%d:%02d", seconds / 60, seconds % 60));
+    }
+    return described.toString();
+  }
+
+  /**
+   * Describe a station for the reports.
+   *
+   * @param station The station.
+   * @return The location and the type of the station.
+   */
+  private static String describe(Station station) {
+    return station.getLocation() + " " + station.getStationType();
+  }
+
+  /**
+   * Describe a window of time for the traffic info.
+   *
+   * @param window The window.
+   * @return The description.
+   */
+  private static String describe(TrafficWindow window) {
+    switch (window) {
+      case LAST_15_MINUTES:
+        return "last 15 minutes";
+      case LAST_HOUR:
+        return "last hour";
+      default:
+        return "last day";
+    }
+  }
+
+  /**
+   * Lists out the current population of every station or stop that has people inside.
+   *
+   * @return The population by "location type" of each station.
+   */
+  private LinkedHashMap<String, Integer> crowdingInfo() {
+    int[] population = transitManager.stationPopulationSnapshot();
+    LinkedHashMap<String, Integer> crowding = new LinkedHashMap<>();
+    for (int id = 0; id < population.length; id++) {
+      if (population[id] > 0) {
+        Station station = transitManager.getStation(id);
+        crowding.put(station.getLocation() + " " + station.getStationType(), population[id]);
+      }
+    }
+    return crowding;
+  }
+
+  /**
+   * Move the retention to a day and drop the records kept by day, without walking the cards,
+   * accounts or trips. The records batched by the taps are written, the partitions of the day are
+   * compacted, the partitions of whole expired months are deleted, and the cards, accounts and
+   * trips are purged by the maintenance worker.
+   * They are purged only when they hold a whole expired month, at most once a month.
+   *
+   * @param today The current epoch day.
+   */
+  private void expireRecords(int today) {
+    retention.advance(today);
+    int firstKeptDay = retention.firstKeptDay();
+    transitManager.dropExpiredDays();
+    cardManager.dropExpiredDays(firstKeptDay);
+    accountManager.dropExpiredDays(firstKeptDay);
+    ArrayList<MaintenanceWorker.Step> steps = new ArrayList<>();
+    steps.add(task -> transitManager.flush());
+    steps.add(task -> task.wrote(transitManager.compactFlows(today)));
+    steps.add(task -> task.wrote(transitManager.compactLoad(today)));
+    steps.add(task -> task.wrote(transitManager.compactRiders(today)));
+    steps.add(task -> task.wrote(transitManager.compactDurations(today)));
+    steps.add(
+        task -> {
+          int dropped = DayPartitions.dropMonthsBefore(firstKeptDay);
+          if (dropped > 0) {
+            Logging.getLogger().log(Level.INFO, "Deleted {} expired month partitions", dropped);
+          }
+        });
+    steps.add(
+        task -> {
+          if (retention.needsPurge()) {
+            task.next(purgeSteps(firstKeptDay));
+          }
+        });
+    steps.add(task -> reportCache.clear());
+    maintenance.submit("close of " + EpochDay.format(today), steps);
+  }
+
+  /**
+   * Get the steps that delete the expired trips, card fares and account costs, a batch of cards
+   * or accounts at a time, and save each of them once.
+   *
+   * @param firstKeptDay The first epoch day that is kept.
+   * @return The steps in the order they run.
+   */
+  private ArrayList<MaintenanceWorker.Step> purgeSteps(int firstKeptDay) {
+    ArrayList<MaintenanceWorker.Step> steps = new ArrayList<>();
+    steps.add(
+        MaintenanceWorker.inBatches(
+            transitManager::tripCardIds,
+            cards -> transitManager.deleteTripsBefore(cards, firstKeptDay)));
+    steps.add(task -> task.wrote(transitManager.saveTrips()));
+    steps.add(
+        MaintenanceWorker.inBatches(
+            cardManager::cardIds, cards -> cardManager.deleteCostBefore(cards, firstKeptDay)));
+    steps.add(task -> task.wrote(cardManager.saveCards()));
+    steps.add(
+        MaintenanceWorker.inBatches(
+            accountManager::emails,
+            emails -> accountManager.deleteCostBefore(emails, firstKeptDay)));
+    steps.add(task -> task.wrote(accountManager.saveAccounts()));
+    steps.add(task -> retention.purged(firstKeptDay));
+    return steps;
+  }
+
+  /**
+   * Get the progress of the background maintenance of the records and the work it has done.
+   *
+   * @return A snapshot of the maintenance.
+   */
+  public MaintenanceStatus getMaintenanceStatus() {
+    return maintenance.status();
   }
 
   /** Initialize the entire system. */
@@ -266,6 +764,37 @@ public class AdminUser extends Observable {
     this.accountManager = new AccountManager(this.cardManager);
     this.transitManager = new TransitManager(this.cardManager);
     this.cardManager.setAccountManager(accountManager);
+    this.cardManager.setEventPublisher(events);
+    this.cardManager.setClock(this::currentTime);
+    this.transitManager.setEventPublisher(events);
+    this.cardManager.setReportCache(reportCache);
+    this.transitManager.setReportCache(reportCache);
+    this.transitManager.setRetention(retention);
+    retention.setOldestStoredDay(
+        Math.min(transitManager.oldestTripDay(), cardManager.oldestRevenueDay()));
+    Integer lastClosed = EpochDay.parse(lastDateClose);
+    if (lastClosed != null) {
+      retention.advance(lastClosed);
+    }
+    this.events.subscribe(auditLog, AuditLog.BUFFER_CAPACITY, true);
+  }
+
+  /**
+   * Get the publisher of the taps, deductions, top ups, suspensions and system open and close.
+   *
+   * @return The EventPublisher of the system.
+   */
+  public EventPublisher<TransitEvent> getEventPublisher() {
+    return events;
+  }
+
+  /**
+   * Get the audit log of the system.
+   *
+   * @return The AuditLog that writes the events to the audit files.
+   */
+  public AuditLog getAuditLog() {
+    return auditLog;
   }
 
   /**
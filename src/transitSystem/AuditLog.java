@@ -0,0 +1,178 @@
+package transitSystem;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.logging.Level;
+
+/**
+ * Writes every TransitEvent of the system to binary audit files with fixed-size records, so that
+ * a reader can seek to a time instead of scanning text. A file only holds the records of one day
+ * in the order of their time, and it is named "audit-yyyy-MM-dd-n.bin". A new file is started
+ * when the day changes, when the time of an event goes back, or when the file is too large.
+ */
+public class AuditLog implements EventPublisher.Subscriber<TransitEvent> {
+
+  /** The first four bytes of an audit file, "TAUD". */
+  static final int MAGIC = 0x54415544;
+
+  /** The version of the record format. */
+  static final int VERSION = 1;
+
+  /** The number of bytes before the first record: the magic number and the version. */
+  static final int HEADER_BYTES = 8;
+
+  /** The number of bytes of a record: type, card id, station id, fare and time. */
+  static final int RECORD_BYTES = 1 + 4 + 4 + 8 + 8;
+
+  /** The offset of the time inside a record. */
+  static final int TIME_OFFSET = 1 + 4 + 4 + 8;
+
+  /** The default largest size of a file in bytes. */
+  static final long DEFAULT_MAX_FILE_BYTES = 16L * 1024 * 1024;
+
+  /**
+   * The number of events buffered while the file is being written. The log subscribes with
+   * waitWhenFull, so a tap waits for room instead of its record being dropped.
+   */
+  static final int BUFFER_CAPACITY = 16384;
+
+  /** The directory of the audit files. */
+  private final File directory;
+
+  /** The largest size of a file in bytes. */
+  private final long maxFileBytes;
+
+  /** The file being written, null if no file is open. */
+  private DataOutputStream out;
+
+  /** The number of bytes written to the current file. */
+  private long fileBytes;
+
+  /** The epoch day of the records in the current file. */
+  private int fileDay;
+
+  /** The time of the last record in the current file. */
+  private long lastTime;
+
+  /**
+   * Create an audit log with the default size of a file.
+   *
+   * @param directory The directory of the audit files.
+   */
+  public AuditLog(File directory) {
+    this(directory, DEFAULT_MAX_FILE_BYTES);
+  }
+
+  /**
+   * Create an audit log.
+   *
+   * @param directory The directory of the audit files.
+   * @param maxFileBytes The largest size of a file in bytes.
+   */
+  public AuditLog(File directory, long maxFileBytes) {
+    this.directory = directory;
+    this.maxFileBytes = Math.max(maxFileBytes, HEADER_BYTES + RECORD_BYTES);
+  }
+
+  /**
+   * Get the directory of the audit files.
+   *
+   * @return The directory.
+   */
+  public File getDirectory() {
+    return directory;
+  }
+
+  @Override
+  public void onSubscribe(EventPublisher.Subscription subscription) {
+    subscription.request(Long.MAX_VALUE);
+  }
+
+  @Override
+  public void onNext(TransitEvent event) {
+    try {
+      write(event);
+    } catch (IOException ex) {
+      Logging.getLogger().log(Level.WARNING, "IOException is caught when writing audit log", ex);
+      closeFile();
+    }
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    Logging.getLogger().log(Level.WARNING, "The audit log stopped receiving events", throwable);
+    closeFile();
+  }
+
+  @Override
+  public void onComplete() {
+    closeFile();
+  }
+
+  /**
+   * Append the record of an event, starting a new file if needed.
+   *
+   * @param event The event.
+   * @throws IOException If the file cannot be written.
+   */
+  private void write(TransitEvent event) throws IOException {
+    long time = event.getTime();
+    int day = EpochDay.of(time);
+    if (out == null
+        || day != fileDay
+        || time < lastTime
+        || fileBytes + RECORD_BYTES > maxFileBytes) {
+      openFile(day);
+    }
+    out.writeByte(event.getType().ordinal());
+    out.writeInt(event.getCardId());
+    out.writeInt(event.getStation() == null ? -1 : event.getStation().getId());
+    out.writeDouble(event.getAmount());
+    out.writeLong(time);
+    // the events come one at a time, so every record is handed to the file system at once
+    out.flush();
+    fileBytes += RECORD_BYTES;
+    lastTime = time;
+  }
+
+  /**
+   * Close the current file and start the next file of a day.
+   *
+   * @param day The epoch day of the records in the new file.
+   * @throws IOException If the file cannot be created.
+   */
+  private void openFile(int day) throws IOException {
+    closeFile();
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Cannot create directory " + directory);
+    }
+    String prefix = "audit-" + EpochDay.format(day) + "-";
+    File file;
+    int n = 0;
+    do {
+      file = new File(directory, prefix + n + ".bin");
+      n++;
+    } while (file.exists());
+    out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    fileBytes = HEADER_BYTES;
+    fileDay = day;
+    lastTime = Long.MIN_VALUE;
+  }
+
+  /** Close the current file if one is open. */
+  private void closeFile() {
+    if (out != null) {
+      try {
+        out.close();
+      } catch (IOException ex) {
+        Logging.getLogger().log(Level.WARNING, "IOException is caught when closing audit log", ex);
+      }
+      out = null;
+    }
+  }
+}
@@ -0,0 +1,322 @@
+package transitSystem;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.function.Consumer;
+
+/**
+ * Reads the files of an AuditLog. Files of other days are skipped by their names and the first
+ * record of a time range is found with a binary search, since the records of a file are sorted by
+ * time. It can be run from the command line:
+ *
+ * <pre>
+ * java transitSystem.AuditLogReader [--dir audit] [--card id] [--from yyyy-MM-dd] [--to yyyy-MM-dd]
+ * </pre>
+ */
+public class AuditLogReader {
+
+  /** One record of an audit file. */
+  public static class Entry {
+
+    /** The kind of the event. */
+    private final TransitEvent.Type type;
+    /** The id of the card, 0 if no card. */
+    private final int cardId;
+    /** The id of the station, -1 if no station. */
+    private final int stationId;
+    /** The money deducted or topped up. */
+    private final double fare;
+    /** The time in milliseconds of the event. */
+    private final long time;
+
+    /**
+     * Create a record.
+     *
+     * @param type The kind of the event.
+     * @param cardId The id of the card.
+     * @param stationId The id of the station.
+     * @param fare The money deducted or topped up.
+     * @param time The time in milliseconds of the event.
+     */
+    Entry(TransitEvent.Type type, int cardId, int stationId, double fare, long time) {
+      this.type = type;
+      this.cardId = cardId;
+      this.stationId = stationId;
+      this.fare = fare;
+      this.time = time;
+    }
+
+    /**
+     * Get the kind of the event.
+     *
+     * @return The type of the event.
+     */
+    public TransitEvent.Type getType() {
+      return type;
+    }
+
+    /**
+     * Get the id of the card.
+     *
+     * @return The card id, 0 if no card.
+     */
+    public int getCardId() {
+      return cardId;
+    }
+
+    /**
+     * Get the id of the station.
+     *
+     * @return The station id, -1 if no station.
+     */
+    public int getStationId() {
+      return stationId;
+    }
+
+    /**
+     * Get the money deducted or topped up.
+     *
+     * @return The fare.
+     */
+    public double getFare() {
+      return fare;
+    }
+
+    /**
+     * Get the time of the event.
+     *
+     * @return The time in milliseconds.
+     */
+    public long getTime() {
+      return time;
+    }
+
+    @Override
+    public String toString() {
+      return new Date(time)
+          + " "
+          + type
+          + " card "
+          + cardId
+          + " station "
+          + stationId
+          + " fare $"
+          + fare;
+    }
+  }
+
+  /** The directory of the audit files. */
+  private final File directory;
+
+  /**
+   * Create a reader of the files in a directory.
+   *
+   * @param directory The directory of the audit files.
+   */
+  public AuditLogReader(File directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Hand every record in a time range to a consumer, in the order they were written.
+   *
+   * @param cardId Only records of this card are read; null for every card.
+   * @param fromTime The earliest time in milliseconds of a record.
+   * @param toTime The latest time in milliseconds of a record.
+   * @param consumer Receives the records.
+   * @throws IOException If a file cannot be read.
+   */
+  public void read(Integer cardId, long fromTime, long toTime, Consumer<Entry> consumer)
+      throws IOException {
+    int fromDay = (fromTime == Long.MIN_VALUE) ? Integer.MIN_VALUE : EpochDay.of(fromTime);
+    int toDay = (toTime == Long.MAX_VALUE) ? Integer.MAX_VALUE : EpochDay.of(toTime);
+    for (File file : files()) {
+      int day = dayOf(file);
+      if (day >= fromDay && day <= toDay) {
+        readFile(file, cardId, fromTime, toTime, consumer);
+      }
+    }
+  }
+
+  /**
+   * Get the audit files sorted by day and then by their number.
+   *
+   * @return The audit files.
+   */
+  private ArrayList<File> files() {
+    ArrayList<File> files = new ArrayList<>();
+    File[] listed = directory.listFiles();
+    if (listed != null) {
+      for (File file : listed) {
+        // a name with a date that does not exist, such as 2019-13-45, is not an audit file
+        if (file.getName().matches("audit-\\d{4}-\\d{2}-\\d{2}-\\d{1,9}\\.bin")
+            && dayOf(file) != null) {
+          files.add(file);
+        }
+      }
+    }
+    files.sort(
+        (a, b) -> {
+          int byDay = Integer.compare(dayOf(a), dayOf(b));
+          return byDay != 0 ? byDay : Integer.compare(numberOf(a), numberOf(b));
+        });
+    return files;
+  }
+
+  /**
+   * Get the epoch day in the name of an audit file.
+   *
+   * @param file The audit file.
+   * @return The epoch day of its records, null if the name has no valid date.
+   */
+  private static Integer dayOf(File file) {
+    return EpochDay.parse(file.getName().substring(6, 16));
+  }
+
+  /**
+   * Get the number in the name of an audit file.
+   *
+   * @param file The audit file.
+   * @return The number of the file within its day.
+   */
+  private static int numberOf(File file) {
+    String name = file.getName();
+    return Integer.parseInt(name.substring(17, name.length() - 4));
+  }
+
+  /**
+   * Hand the records of one file in a time range to a consumer.
+   *
+   * @param file The audit file.
+   * @param cardId Only records of this card are read; null for every card.
+   * @param fromTime The earliest time in milliseconds of a record.
+   * @param toTime The latest time in milliseconds of a record.
+   * @param consumer Receives the records.
+   * @throws IOException If the file cannot be read.
+   */
+  private void readFile(
+      File file, Integer cardId, long fromTime, long toTime, Consumer<Entry> consumer)
+      throws IOException {
+    try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+      if (in.length() < AuditLog.HEADER_BYTES || in.readInt() != AuditLog.MAGIC) {
+        throw new IOException("Not an audit file: " + file);
+      }
+      if (in.readInt() != AuditLog.VERSION) {
+        throw new IOException("Unknown audit file version: " + file);
+      }
+      // a record that was cut by a crash is ignored
+      long count = (in.length() - AuditLog.HEADER_BYTES) / AuditLog.RECORD_BYTES;
+      long low = 0;
+      long high = count;
+      while (low < high) {
+        long middle = (low + high) >>> 1;
+        in.seek(offset(middle) + AuditLog.TIME_OFFSET);
+        if (in.readLong() < fromTime) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      // the records after the first one are read in order, so they go through a buffer
+      DataInputStream records =
+          new DataInputStream(
+              new BufferedInputStream(
+                  Channels.newInputStream(in.getChannel().position(offset(low)))));
+      TransitEvent.Type[] types = TransitEvent.Type.values();
+      for (long i = low; i < count; i++) {
+        int type = records.readUnsignedByte();
+        int card = records.readInt();
+        int station = records.readInt();
+        double fare = records.readDouble();
+        long time = records.readLong();
+        if (time > toTime) {
+          break;
+        }
+        if (type >= types.length) {
+          throw new IOException("Unknown event type " + type + " in " + file);
+        }
+        if (cardId == null || cardId == card) {
+          consumer.accept(new Entry(types[type], card, station, fare, time));
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the position of a record in a file.
+   *
+   * @param index The index of the record.
+   * @return The offset in bytes.
+   */
+  private static long offset(long index) {
+    return AuditLog.HEADER_BYTES + index * AuditLog.RECORD_BYTES;
+  }
+
+  /**
+   * Print the records of an audit log.
+   *
+   * @param args The options --dir, --card, --from and --to, each followed by its value.
+   */
+  public static void main(String[] args) {
+    File directory = new File("audit");
+    Integer cardId = null;
+    long fromTime = Long.MIN_VALUE;
+    long toTime = Long.MAX_VALUE;
+    try {
+      for (int i = 0; i < args.length; i += 2) {
+        if (i + 1 >= args.length) {
+          throw new IllegalArgumentException("Missing value of " + args[i]);
+        }
+        String value = args[i + 1];
+        switch (args[i]) {
+          case "--dir":
+            directory = new File(value);
+            break;
+          case "--card":
+            cardId = Integer.parseInt(value);
+            break;
+          case "--from":
+            fromTime = EpochDay.startMillis(parseDay(value));
+            break;
+          case "--to":
+            toTime = EpochDay.startMillis(parseDay(value) + 1) - 1;
+            break;
+          default:
+            throw new IllegalArgumentException("Unknown option " + args[i]);
+        }
+      }
+    } catch (IllegalArgumentException ex) {
+      System.err.println(ex.getMessage());
+      System.err.println(
+          "Usage: AuditLogReader [--dir audit] [--card id] [--from yyyy-MM-dd] [--to yyyy-MM-dd]");
+      System.exit(2);
+      return;
+    }
+    try {
+      new AuditLogReader(directory).read(cardId, fromTime, toTime, System.out::println);
+    } catch (IOException ex) {
+      System.err.println(ex.getMessage());
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Parse a date option.
+   *
+   * @param date The date in the format "yyyy-MM-dd".
+   * @return The epoch day.
+   */
+  private static int parseDay(String date) {
+    Integer day = EpochDay.parse(date);
+    if (day == null) {
+      throw new IllegalArgumentException("Invalid date: " + date);
+    }
+    return day;
+  }
+}
@@ -1,7 +1,8 @@
 package transitSystem;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.HashMap;
 import java.util.HashSet;
 
 import static java.util.Objects.hash;
@@ -12,6 +13,12 @@ import static java.util.Objects.hash;
  */
 public class CardHolderAccount implements Serializable {
 
+  /**
+   * The version of the serialized form, fixed to the value computed for the form that kept the
+   * cost in a HashMap by date string, so that the accounts saved then can still be read.
+   */
+  private static final long serialVersionUID = 4207691923300243086L;
+
   /** The card owner's name. */
   private String name;
 
@@ -24,8 +31,11 @@ public class CardHolderAccount implements Serializable {
   /** A HashMap that stores all existing card in this account. */
   private HashSet<Integer> cards = new HashSet<>();
 
-  /** A HashMap that stores cost and times to be deducted money of each day. */
-  private HashMap<String, Double[]> costPerDay = new HashMap<>();
+  /** A DailyLedger that stores cost and times to be deducted money of each day. */
+  private DailyLedger costPerDay = new DailyLedger();
+
+  /** A DailyLedger that stores cost and times to be deducted money of each epoch month. */
+  private DailyLedger costPerMonth = new DailyLedger();
 
   /**
    * Creates a new CardHolderAccount with its owner's name and email address, initialize them to
@@ -43,12 +53,45 @@ public class CardHolderAccount implements Serializable {
   /**
    * Get the cost per day.
    *
-   * @return The CostPerDay.
+   * @return The CostPerDay, keyed by epoch day.
    */
-  HashMap<String, Double[]> getCostPerDay() {
+  DailyLedger getCostPerDay() {
     return costPerDay;
   }
 
+  /**
+   * Get the cost per month.
+   *
+   * @return The CostPerMonth, keyed by epoch month.
+   */
+  DailyLedger getCostPerMonth() {
+    return costPerMonth;
+  }
+
+  /**
+   * Record a deduction in the cost of its day and its month.
+   *
+   * @param day The epoch day of the deduction.
+   * @param fare The money deducted.
+   */
+  void addCost(int day, double fare) {
+    costPerDay.add(day, 1, fare);
+    costPerMonth.add(EpochDay.monthOf(day), 1, fare);
+  }
+
+  /**
+   * Delete the cost of the days before a day, and take it out of the cost of their months.
+   *
+   * @param firstKeptDay The epoch day of the oldest cost that is kept.
+   * @return True if a cost is deleted.
+   */
+  boolean deleteCostBefore(int firstKeptDay) {
+    for (int i = 0; i < costPerDay.size() && costPerDay.dayAt(i) < firstKeptDay; i++) {
+      costPerMonth.add(
+          EpochDay.monthOf(costPerDay.dayAt(i)), -costPerDay.countAt(i), -costPerDay.amountAt(i));
+    }
+    return costPerDay.removeBefore(firstKeptDay) > 0;
+  }
 
   /**
    * Get the hashed password of the account.
@@ -129,13 +172,13 @@ public class CardHolderAccount implements Serializable {
   @Override
   public String toString() {
     StringBuilder costs = new StringBuilder();
-    for (String key : costPerDay.keySet()) {
+    for (int i = 0; i < costPerDay.size(); i++) {
       costs.append("Date: ");
-      costs.append(key);
+      costs.append(EpochDay.format(costPerDay.dayAt(i)));
       costs.append(", total times: ");
-      costs.append(costPerDay.get(key)[0]);
+      costs.append(costPerDay.countAt(i));
       costs.append(", costs: ");
-      costs.append(costPerDay.get(key)[1]);
+      costs.append(costPerDay.amountAt(i));
       costs.append(System.getProperty("line.separator"));
     }
     return "CardHolderAccount{"
@@ -149,4 +192,30 @@ public class CardHolderAccount implements Serializable {
         + costs
         + '}';
   }
+
+  /**
+   * Read an account, converting the cost that was saved in a HashMap by date string.
+   *
+   * @param in The stream the account is read from.
+   * @throws IOException If the account cannot be read.
+   * @throws ClassNotFoundException If a class of the account is not found.
+   */
+  @SuppressWarnings("unchecked")
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    ObjectInputStream.GetField fields = in.readFields();
+    name = (String) fields.get("name", null);
+    email = (String) fields.get("email", null);
+    password = fields.get("password", 0);
+    cards = (HashSet<Integer>) fields.get("cards", null);
+    costPerDay = DailyLedger.fromSaved(fields.get("costPerDay", null));
+    costPerMonth = (DailyLedger) fields.get("costPerMonth", null);
+    if (costPerMonth == null) {
+      // the cost per month was added with the ledgers, it is built from the cost per day
+      costPerMonth = new DailyLedger();
+      for (int i = 0; i < costPerDay.size(); i++) {
+        costPerMonth.add(
+            EpochDay.monthOf(costPerDay.dayAt(i)), costPerDay.countAt(i), costPerDay.amountAt(i));
+      }
+    }
+  }
 }
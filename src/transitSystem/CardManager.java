@@ -3,15 +3,14 @@ package transitSystem;
 import transitSystem.Exceptions.AlreadyExistException;
 
 import java.io.*;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Observable;
+import java.util.List;
+import java.util.function.LongSupplier;
 import java.util.logging.*;
 
 /** Represent the CardManager that keep tracks of all the cards. */
-public class CardManager extends Observable implements Serializable {
+public class CardManager implements Serializable {
 
   /** Stores all the cards in the system. */
   private HashMap<Integer, TransitPass> cards = new HashMap<>();
@@ -19,12 +18,27 @@ public class CardManager extends Observable implements Serializable {
   /** Store the cards that can be top up. */
   private HashMap<Integer, AbleTopUp> ableTopUp = new HashMap<>();
 
-  /** Store the accountManager. */
+  /**
+   * Store the accountManager. A method that holds the lock of the CardManager never calls it, since
+   * the binding of a card takes the two locks in the other order.
+   */
   private AccountManager accountManager;
 
   /** Store the number of card exist. */
   private int cardId = 1;
 
+  /** The deductions and fares of every day by card type, rebuilt from the cards when loaded. */
+  private transient RevenueRollup revenue = new RevenueRollup();
+
+  /** Publish the deductions, top ups, suspensions and activations. */
+  private transient EventPublisher<TransitEvent> events;
+
+  /** The totals of the reports that are built, forgotten when a deduction changes them. */
+  private transient ReportCache reportCache = new ReportCache();
+
+  /** Gives the current time of the system in milliseconds, the card events are stamped with it. */
+  private transient LongSupplier clock = System::currentTimeMillis;
+
   /** Represents a card manager which can do some operations to all the cards in the system. */
   @SuppressWarnings("unchecked")
   CardManager() {
@@ -52,7 +66,10 @@ public class CardManager extends Observable implements Serializable {
       } else {
         serializeCards();
       }
+      rebuildRevenue();
       Logging.getLogger().log(Level.FINE, "Successfully serialize CardManager");
+    } catch (InvalidClassException ex) {
+      OldDataFile.setAside("data-Cards.out", ex);
     } catch (IOException ex) {
       Logging.getLogger().log(Level.SEVERE, "IOException is caught in CardManager.", ex);
     } catch (ClassNotFoundException ex) {
@@ -69,7 +86,35 @@ public class CardManager extends Observable implements Serializable {
     this.accountManager = accountManager;
   }
 
-  public boolean checkCardIdMatch(int cardId) {
+  /**
+   * Sets the publisher of the card events.
+   *
+   * @param events The publisher that the card events are submitted to.
+   */
+  void setEventPublisher(EventPublisher<TransitEvent> events) {
+    this.events = events;
+  }
+
+  /**
+   * Sets the clock of the system, so that the suspensions, activations and top ups are stamped
+   * with the simulated time of the taps rather than the time of the computer.
+   *
+   * @param clock Gives the current time of the system in milliseconds.
+   */
+  void setClock(LongSupplier clock) {
+    this.clock = clock;
+  }
+
+  /**
+   * Sets the cache of the report totals that the deductions invalidate.
+   *
+   * @param reportCache The cache of the report totals.
+   */
+  void setReportCache(ReportCache reportCache) {
+    this.reportCache = reportCache;
+  }
+
+  public synchronized boolean checkCardIdMatch(int cardId) {
     return cards.containsKey(cardId);
   }
 
@@ -78,12 +123,15 @@ public class CardManager extends Observable implements Serializable {
    *
    * @param cardId The id of the card which is needed to be suspended.
    */
-  public void suspendCard(Integer cardId) {
+  public synchronized void suspendCard(Integer cardId) {
     TransitPass targetCard = cards.get(cardId); // Find the card from the HashMap.
     if (targetCard != null) {
       targetCard.setSuspended(true);
       Logging.getLogger().log(Level.INFO, String.format("Card %d has been suspended", cardId));
       serializeCards();
+      events.submit(
+          new TransitEvent(
+              TransitEvent.Type.SUSPENSION, cardId, null, clock.getAsLong()));
     } else {
       Logging.getLogger().log(Level.INFO, "Invalid card id when suspend card");
     }
@@ -94,13 +142,16 @@ public class CardManager extends Observable implements Serializable {
    *
    * @param cardId The id of the card which is needed to be activated.
    */
-  public void activateCard(Integer cardId) {
+  public synchronized void activateCard(Integer cardId) {
     TransitPass targetCard = cards.get(cardId); // Find the card from the HashMap.
     if (targetCard != null) {
       targetCard.setSuspended(false);
       Logging.getLogger().log(Level.INFO,
               "Card " + cardId + "has been activated");
       serializeCards();
+      events.submit(
+          new TransitEvent(
+              TransitEvent.Type.ACTIVATION, cardId, null, clock.getAsLong()));
     } else {
       Logging.getLogger().log(Level.INFO,
               "Card does not exist.");
@@ -114,25 +165,33 @@ public class CardManager extends Observable implements Serializable {
    *
    * @param cardId The id of the card that needs to be deducted money
    * @param fare The money that needs to be deducted in card.
-   * @param calendar The specific time that the card needs to be deducted money.
+   * @param currTime The time in milliseconds that the card needs to be deducted money.
+   * @param station The station where the card is deducted money.
    */
-  String deductMoney(Integer cardId, double fare, Calendar calendar) {
-    TransitPass targetCard = cards.get(cardId);
-    SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-    String specificTime = sdf.format(calendar.getTime());
-    String time = specificTime.substring(0, 10);
+  String deductMoney(Integer cardId, double fare, long currTime, Station station) {
+    int time = EpochDay.of(currTime);
     String returnValue;
-    if (isAbleDeduct(cardId)) {
+    String ownerEmail;
+    synchronized (this) {
+      TransitPass targetCard = cards.get(cardId);
+      if (!isAbleDeduct(cardId)) {
+        Logging.getLogger()
+            .log(Level.WARNING, "call tap function on a card which is unable to deduct");
+        return "unable to deduct money";
+      }
       Logging.getLogger()
-              .log(Level.INFO, "successfully deduct money from cardId:" + cardId + " fare: " + fare);
-      returnValue = targetCard.tap(fare, time, accountManager);
+          .log(
+              Level.INFO,
+              () -> "successfully deduct money from cardId:" + cardId + " fare: " + fare);
+      returnValue = targetCard.tap(fare, time);
+      ownerEmail = targetCard.getOwnerEmail();
+      revenue.add(time, targetCard.getCardType(), 1, fare);
+      reportCache.invalidate(time);
       serializeCards();
-    } else {
-      Logging.getLogger()
-          .log(Level.WARNING, "call tap function on a card which is unable to deduct");
-      returnValue = "unable to deduct money";
     }
-
+    // update account cost information in the specific date, once the lock of the cards is released
+    accountManager.updateAccountCostInformation(ownerEmail, time, fare);
+    events.submit(new TransitEvent(TransitEvent.Type.DEDUCTION, cardId, station, currTime, fare));
     return returnValue;
   }
 
@@ -164,14 +223,14 @@ public class CardManager extends Observable implements Serializable {
   /**
    * Check if the card correspond to cardId is able to deduct.
    */
-  public boolean isAbleDeduct(Integer cardId) {
+  public synchronized boolean isAbleDeduct(Integer cardId) {
     return checkAbleDeduct(cardId).zero;
   }
 
   /**
    * Get any message related to the card while tapping
    */
-  String getDeductMessage(Integer cardId) {
+  synchronized String getDeductMessage(Integer cardId) {
     return checkAbleDeduct(cardId).one;
   }
 
@@ -181,7 +240,7 @@ public class CardManager extends Observable implements Serializable {
    * @param cardId The id of the card that needs to be topped up.
    * @param fare The money that needs to be topped up in card.
    */
-  public void topUp(Integer cardId, Integer fare) {
+  public synchronized void topUp(Integer cardId, Integer fare) {
     // assert 10 20 50
     assert fare == 50 || fare == 20 || fare == 10;
     AbleTopUp targetCard = ableTopUp.get(cardId);
@@ -193,6 +252,9 @@ public class CardManager extends Observable implements Serializable {
         targetCard.topUp(fare.doubleValue());
         Logging.getLogger().log(Level.INFO,
                 "Card " + cardId + " is unable to top up.");
+        events.submit(
+            new TransitEvent(
+                TransitEvent.Type.TOP_UP, cardId, null, clock.getAsLong(), fare));
       }
       serializeCards();
     } else {
@@ -207,18 +269,22 @@ public class CardManager extends Observable implements Serializable {
    * @param cardId The id of card.
    * @return the card that is found in cardManager.
    */
-  public TransitPass findCard(Integer cardId) {
+  public synchronized TransitPass findCard(Integer cardId) {
     return cards.get(cardId);
   }
 
   /** Applies for a new card. */
-  public void applyForCard(TransitPass newCard) throws AlreadyExistException {
+  public synchronized void applyForCard(TransitPass newCard) throws AlreadyExistException {
     if (cards.containsKey(newCard.cardId)) {
       throw new AlreadyExistException("this card is already exist");
     } else {
       newCard.setId(cardId);
       cardId++;
       cards.put(newCard.getCardId(), newCard);
+      if (revenue.addCardType(newCard.getCardType())) {
+        // every report lists the card types
+        reportCache.clear();
+      }
 
       if (newCard instanceof AbleTopUp) {
         ableTopUp.put(newCard.getCardId(), (AbleTopUp) newCard);
@@ -227,120 +293,103 @@ public class CardManager extends Observable implements Serializable {
     }
   }
 
+  /** Rebuild the daily totals of every card type from the cost records of the cards. */
+  private void rebuildRevenue() {
+    revenue = ReportEngine.rollUp(cards.values());
+  }
+
   /**
-   * Tracks total revenue collected in the specific day.
+   * Compute the totals of the report on a day, with the revenue, the deductions and the totals of
+   * every card type taken from the rollup in one pass.
    *
-   * @param date The specific day.
-   * @return the total revenue collected in the specific day.
+   * @param day The epoch day.
+   * @param stationsPassed The number of stations and stops passed on the day.
+   * @param accountCost The money spent by all the accounts on the day.
+   * @return The totals of the report.
    */
-  double trackTotalRevenuePerDay(String date) {
-    double revenue = 0;
-    for (TransitPass card : cards.values()) {
-      HashMap<String, Double[]> cardCostPerDay = card.getCostPerDay();
-      if (cardCostPerDay.containsKey(date)) {
-        revenue += cardCostPerDay.get(date)[1];
-      }
-    }
-    return revenue;
+  synchronized ReportCache.Totals reportTotals(int day, int stationsPassed, double accountCost) {
+    return ReportEngine.totalsOn(revenue, day, stationsPassed, accountCost);
   }
 
   /**
-   * Tracks total times collected in the specific day.
+   * Tracks total revenue collected from a day to another day.
    *
-   * @param date The specific day.
-   * @return the total revenue collected in the specific day.
+   * @param fromDay The first epoch day of the range.
+   * @param toDay The last epoch day of the range.
+   * @return the total revenue collected in the range.
    */
-  double trackTotalTimesPerDay(String date) {
-    double times = 0;
-    for (TransitPass card : cards.values()) {
-      HashMap<String, Double[]> cardCostPerDay = card.getCostPerDay();
-      if (cardCostPerDay.containsKey(date)) {
-        times += cardCostPerDay.get(date)[0];
-      }
-    }
-    return times;
+  double trackTotalRevenueBetween(int fromDay, int toDay) {
+    return revenue.revenue(fromDay, toDay);
   }
 
   /**
-   * Tracks total times and fares that cards spend in the specific day.
+   * Tracks total times collected from a day to another day.
    *
-   * @param date The specific day.
-   * @return the total revenue collected in the specific day.
+   * @param fromDay The first epoch day of the range.
+   * @param toDay The last epoch day of the range.
+   * @return the total number of deductions in the range.
    */
-  HashMap<String, Double[]> trackTotalInfo(String date) {
-    HashMap<String, Double[]> info = new HashMap<>();
-    for (TransitPass card : cards.values()) {
-      if (info.keySet().contains(card.getCardType())) {
-        addTimesHelper(info, card, date);
-        addFareHelper(info, card, date);
-      } else {
-        info.put(card.getCardType(), new Double[2]);
-        info.get(card.getCardType())[0] = 0.0;
-        info.get(card.getCardType())[1] = 0.0;
-        addTimesHelper(info, card, date);
-        addFareHelper(info, card, date);
-      }
-    }
-    return info;
+  long trackTotalTimesBetween(int fromDay, int toDay) {
+    return revenue.times(fromDay, toDay);
   }
 
   /**
-   * Helper function for trackTotalInfo, collect a card's fare and save it to info.
+   * Get the oldest day that a card has a deduction on.
    *
-   * @param date The specific day.
+   * @return The epoch day, Integer.MAX_VALUE if there is no deduction.
    */
-  private void addFareHelper(HashMap<String, Double[]> info, TransitPass card, String date) {
-    HashMap<String, Double[]> costPerDay = card.getCostPerDay();
-    double fare = 0;
-    if (costPerDay != null && costPerDay.containsKey(date)) {
-      fare = card.getCostPerDay().get(date)[1];
-    }
-    info.get(card.getCardType())[1] = info.get(card.getCardType())[1] + fare;
+  int oldestRevenueDay() {
+    return revenue.oldestDay();
   }
 
   /**
-   * Helper function for trackTotalInfo, collect a card's tap times and save it to info.
+   * Delete the daily totals of the days before a day, without walking the cards.
    *
-   * @param date The specific day.
+   * @param firstKeptDay The first epoch day that is kept.
    */
-  private void addTimesHelper(HashMap<String, Double[]> info, TransitPass card, String date) {
-    HashMap<String, Double[]> costPerDay = card.getCostPerDay();
-    double times = 0;
-    if (costPerDay != null && costPerDay.containsKey(date)) {
-      times = card.getCostPerDay().get(date)[0];
-    }
-    info.get(card.getCardType())[0] = info.get(card.getCardType())[0] + times;
+  void dropExpiredDays(int firstKeptDay) {
+    revenue.deleteBefore(firstKeptDay);
   }
 
-  /** Delete all the card's fare and tap times information that are older than 10 years. */
-  void deleteCardRevenueRecord(Calendar currTime) {
-    long teyYearsInMilli = 315_569_520_000L;
-    // get all cards
-    for (TransitPass card : cards.values()) {
-      HashMap<String, Double[]> costPerDay = card.getCostPerDay();
-      for (String key : costPerDay.keySet()) {
-        try {
-          // translate date's format from string to Calendar.
-          SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-          Calendar cal1 = Calendar.getInstance();
-          cal1.setTime(sdf.parse(key));
-          // check
-          if ((currTime.getTimeInMillis() - cal1.getTimeInMillis()) > teyYearsInMilli) {
-            Double[] record = new Double[2];
-            record[0] = 0.0;
-            record[1] = 0.0;
-            costPerDay.put(key, record);
-          }
-        } catch (ParseException e) {
-          e.printStackTrace();
-        }
+  /**
+   * Get the ids of all the cards.
+   *
+   * @return A copy of the ids.
+   */
+  synchronized List<Integer> cardIds() {
+    return new ArrayList<>(cards.keySet());
+  }
+
+  /**
+   * Delete the fare and tap times of some cards on the days before a day.
+   *
+   * @param cardIds The ids of the cards.
+   * @param firstKeptDay The first epoch day that is kept.
+   * @return The number of days deleted.
+   */
+  synchronized int deleteCostBefore(List<Integer> cardIds, int firstKeptDay) {
+    int deleted = 0;
+    for (int id : cardIds) {
+      TransitPass card = cards.get(id);
+      if (card != null) {
+        deleted += card.getCostPerDay().removeBefore(firstKeptDay);
       }
     }
+    return deleted;
+  }
+
+  /**
+   * Save the cards after they are purged.
+   *
+   * @return The size of the file of the cards in bytes.
+   */
+  synchronized long saveCards() {
     serializeCards();
+    return new File("data-Cards.out").length();
   }
 
   /** Serializes all the cards in the system. */
-  private void serializeCards() {
+  private synchronized void serializeCards() {
     try {
       // Saving of object in a file
       FileOutputStream file = new FileOutputStream("data-Cards.out");
@@ -1,13 +1,19 @@
 package transitSystem;
 
 import java.io.Serializable;
-import java.util.Calendar;
 
 /**
  * A ContinuousTrip class that represents every transit activity. It stores every trip within this
  * continuous trip.
  */
 public class ContinuousTrip implements Serializable {
+
+  /**
+   * The version of the serialized form, fixed to the value computed for the first form so that
+   * the trips saved by the first version can still be read.
+   */
+  private static final long serialVersionUID = -1503862646306080204L;
+
   /** The first trip of this ContinuousTrip. */
   private Trip front;
   /** The last trip of this ContinuousTrip. */
@@ -22,44 +28,44 @@ public class ContinuousTrip implements Serializable {
   /**
    * To check if the tap in activity legal
    *
-   * @param time the time that the trip begin.
+   * @param time the time in milliseconds that the trip begin.
    */
-  boolean isLegalEnter(Calendar time) {
+  boolean isLegalEnter(long time) {
     if (this.back == null) {
       return true;
     } else {
       return !(back.getExitStation() == null)
           && !(back.getEnterStation() == null)
-          && time.getTimeInMillis() > this.back.getEnterTime().getTimeInMillis();
+          && time > this.back.getEnterTime();
     }
   }
 
   /**
    * To check if the tap out activity legal
    *
-   * @param time the time that the trip begin.
+   * @param time the time in milliseconds that the trip begin.
    */
-  boolean isLegalExit(Station station, Calendar time) {
+  boolean isLegalExit(Station station, long time) {
     if (this.back == null) {
       return false;
     }
     return (back.getExitStation() == null)
         && !(back.getEnterStation() == null)
         && station.getStationType().equals(back.getEnterStation().getStationType())
-        && time.getTimeInMillis() > this.back.getEnterTime().getTimeInMillis();
+        && time > this.back.getEnterTime();
   }
 
   /**
    * To check if the trip is continuous by compare station and time
    *
    * @param station the station that user tap into
-   * @param time the time that the trip begin.
+   * @param time the time in milliseconds that the trip begin.
    */
-  boolean isContinuous(Station station, Calendar time) {
+  boolean isContinuous(Station station, long time) {
     if (this.back == null) {
       return true;
     }
-    return (time.getTimeInMillis() - front.getEnterTime().getTimeInMillis()) / (60 * 1000) <= 120
+    return (time - front.getEnterTime()) / (60 * 1000) <= 120
         && station.getLocation().equals(this.back.getExitStation().getLocation());
   }
 
@@ -67,9 +73,9 @@ public class ContinuousTrip implements Serializable {
    * Add a new trip to the continuous trip.
    *
    * @param station The enter station that the trip begin.
-   * @param time the time that the trip begin.
+   * @param time the time in milliseconds that the trip begin.
    */
-  void addEnter(Station station, Calendar time) {
+  void addEnter(Station station, long time) {
     // add and renew both front and back if there was no station in continuous trip,
     // else back.next_ becomes new node and renew back
     Trip trip = new Trip(getStrategy(station));
@@ -92,9 +98,9 @@ public class ContinuousTrip implements Serializable {
    * End the new trip of the continuous trip.
    *
    * @param station The exit station that the trip begin.
-   * @param time the time that the trip end.
+   * @param time the time in milliseconds that the trip end.
    */
-  void addExit(Station station, Calendar time) {
+  void addExit(Station station, long time) {
     // add and renew both front and back if there was no station in continuous trip,
     // else set exit to back
     if (size == 0) {
@@ -202,6 +208,15 @@ public class ContinuousTrip implements Serializable {
     return front;
   }
 
+  /**
+   * Check if the card tapped out of the last trip of this ContinuousTrip.
+   *
+   * @return True if the last trip has an exit station.
+   */
+  boolean isFinished() {
+    return back != null && back.getExitStation() != null;
+  }
+
   /**
    * Make the ContinuousTrip to a String.
    *
@@ -0,0 +1,225 @@
+package transitSystem;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.logging.Level;
+
+/**
+ * The number of deductions and the money deducted on every day, kept in three parallel primitive
+ * arrays sorted by epoch day instead of a HashMap of boxed values. The money is kept in cents so
+ * that the sums are exact. A CardHolderAccount also keeps one by epoch month, in which case every
+ * "day" below is a month.
+ */
+final class DailyLedger implements Serializable {
+
+  /**
+   * The version of the serialized form, fixed to the value computed for the first form so that
+   * the cards and accounts saved since then can still be read after the class changes.
+   */
+  private static final long serialVersionUID = -5323946750549120070L;
+
+  /** The number of days that are recorded. */
+  private int size;
+
+  /** The recorded epoch days in increasing order. */
+  private int[] days = new int[0];
+
+  /** The number of deductions of every recorded day. */
+  private int[] counts = new int[0];
+
+  /** The money in cents deducted on every recorded day. */
+  private long[] cents = new long[0];
+
+  /**
+   * Add deductions to a day.
+   *
+   * @param day The epoch day.
+   * @param count The number of deductions, may be negative to take them back.
+   * @param amount The money deducted, may be negative to take it back.
+   */
+  void add(int day, int count, double amount) {
+    int index = indexOf(day);
+    if (index < 0) {
+      index = -index - 1;
+      insert(index, day);
+    }
+    counts[index] += count;
+    cents[index] += toCents(amount);
+  }
+
+  /**
+   * Get the number of recorded days.
+   *
+   * @return The number of days.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Check if no day is recorded.
+   *
+   * @return True if no day is recorded.
+   */
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Get a recorded day.
+   *
+   * @param index The index of the day, from 0 to size() - 1 in increasing order of the days.
+   * @return The epoch day.
+   */
+  int dayAt(int index) {
+    return days[index];
+  }
+
+  /**
+   * Get the number of deductions of a recorded day.
+   *
+   * @param index The index of the day.
+   * @return The number of deductions.
+   */
+  int countAt(int index) {
+    return counts[index];
+  }
+
+  /**
+   * Get the money deducted on a recorded day.
+   *
+   * @param index The index of the day.
+   * @return The money in dollars.
+   */
+  double amountAt(int index) {
+    return cents[index] / 100.0;
+  }
+
+  /**
+   * Get the money deducted on a recorded day in cents.
+   *
+   * @param index The index of the day.
+   * @return The money in cents.
+   */
+  long centsAt(int index) {
+    return cents[index];
+  }
+
+  /**
+   * Get the number of deductions on a day.
+   *
+   * @param day The epoch day.
+   * @return The number of deductions, 0 if the day is not recorded.
+   */
+  int count(int day) {
+    int index = indexOf(day);
+    return index < 0 ? 0 : counts[index];
+  }
+
+  /**
+   * Get the money deducted on a day.
+   *
+   * @param day The epoch day.
+   * @return The money in dollars, 0 if the day is not recorded.
+   */
+  double amount(int day) {
+    int index = indexOf(day);
+    return index < 0 ? 0 : cents[index] / 100.0;
+  }
+
+  /**
+   * Delete the days before a day.
+   *
+   * @param firstKeptDay The epoch day of the oldest record that is kept.
+   * @return The number of days deleted.
+   */
+  int removeBefore(int firstKeptDay) {
+    int index = indexOf(firstKeptDay);
+    int removed = index < 0 ? -index - 1 : index;
+    if (removed > 0) {
+      size -= removed;
+      System.arraycopy(days, removed, days, 0, size);
+      System.arraycopy(counts, removed, counts, 0, size);
+      System.arraycopy(cents, removed, cents, 0, size);
+    }
+    return removed;
+  }
+
+  /**
+   * Convert money to cents.
+   *
+   * @param amount The money in dollars.
+   * @return The nearest number of cents.
+   */
+  static long toCents(double amount) {
+    return Math.round(amount * 100);
+  }
+
+  /**
+   * Get the ledger of a card or an account as it was saved. Before the ledgers, the cost was saved
+   * as a HashMap from a "yyyy-MM-dd" date to {times, cost}; such a map is converted. A date that
+   * is not valid is logged and left out.
+   *
+   * @param saved The saved DailyLedger or HashMap, null if nothing was saved.
+   * @return The ledger.
+   */
+  static DailyLedger fromSaved(Object saved) {
+    if (saved instanceof DailyLedger) {
+      return (DailyLedger) saved;
+    }
+    DailyLedger ledger = new DailyLedger();
+    if (saved instanceof Map) {
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) saved).entrySet()) {
+        Integer day = EpochDay.parse(String.valueOf(entry.getKey()));
+        Double[] costTimes = (Double[]) entry.getValue();
+        if (day == null) {
+          Logging.getLogger()
+              .log(Level.WARNING, "Dropped the cost of invalid date {}", entry.getKey());
+        } else {
+          ledger.add(day, costTimes[0].intValue(), costTimes[1]);
+        }
+      }
+    }
+    return ledger;
+  }
+
+  /**
+   * Find a day with a binary search. The newest day is checked first since most deductions are
+   * added to it.
+   *
+   * @param day The epoch day.
+   * @return The index of the day, or -(insertion point) - 1 if it is not recorded.
+   */
+  private int indexOf(int day) {
+    if (size > 0 && days[size - 1] == day) {
+      return size - 1;
+    }
+    if (size == 0 || days[size - 1] < day) {
+      return -size - 1;
+    }
+    return Arrays.binarySearch(days, 0, size, day);
+  }
+
+  /**
+   * Insert a day without deductions.
+   *
+   * @param index The position of the day.
+   * @param day The epoch day.
+   */
+  private void insert(int index, int day) {
+    if (size == days.length) {
+      int capacity = Math.max(2, size + (size >> 1));
+      days = Arrays.copyOf(days, capacity);
+      counts = Arrays.copyOf(counts, capacity);
+      cents = Arrays.copyOf(cents, capacity);
+    }
+    System.arraycopy(days, index, days, index + 1, size - index);
+    System.arraycopy(counts, index, counts, index + 1, size - index);
+    System.arraycopy(cents, index, cents, index + 1, size - index);
+    days[index] = day;
+    counts[index] = 0;
+    cents[index] = 0;
+    size++;
+  }
+}
@@ -0,0 +1,169 @@
+package transitSystem;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The report of the transit system on one day: the population inside the stations now, and the
+ * stations travelled, the costs and the deductions of that day. The UI shows its toString; other
+ * users can read the numbers with the getters.
+ */
+public class DailyReport {
+
+  /** The date of the report, in the format "yyyy-MM-dd". */
+  private final String date;
+
+  /** The number of people inside the stations when the report is made. */
+  private final int population;
+
+  /** The number of people inside every station that is not empty, by station name. */
+  private final Map<String, Integer> crowding;
+
+  /** The number of stations and stops passed in the trips finished on the day. */
+  private final int stationsPassed;
+
+  /** The money spent by all the accounts on the day. */
+  private final double accountCost;
+
+  /** The money deducted from all the cards on the day. */
+  private final double cardRevenue;
+
+  /** The number of deductions from all the cards on the day. */
+  private final int cardTimes;
+
+  /** The {times, fare} of every card type on the day. */
+  private final Map<String, Double[]> cardTypeInfo;
+
+  /**
+   * Create a report.
+   *
+   * @param date The date of the report.
+   * @param population The number of people inside the stations.
+   * @param crowding The number of people inside every station that is not empty.
+   * @param stationsPassed The number of stations and stops passed on the day.
+   * @param accountCost The money spent by all the accounts on the day.
+   * @param cardRevenue The money deducted from all the cards on the day.
+   * @param cardTimes The number of deductions on the day.
+   * @param cardTypeInfo The {times, fare} of every card type on the day.
+   */
+  DailyReport(
+      String date,
+      int population,
+      LinkedHashMap<String, Integer> crowding,
+      int stationsPassed,
+      double accountCost,
+      double cardRevenue,
+      int cardTimes,
+      Map<String, Double[]> cardTypeInfo) {
+    this.date = date;
+    this.population = population;
+    this.crowding = Collections.unmodifiableMap(crowding);
+    this.stationsPassed = stationsPassed;
+    this.accountCost = accountCost;
+    this.cardRevenue = cardRevenue;
+    this.cardTimes = cardTimes;
+    this.cardTypeInfo = Collections.unmodifiableMap(cardTypeInfo);
+  }
+
+  /**
+   * Get the date of the report.
+   *
+   * @return The date in the format "yyyy-MM-dd".
+   */
+  public String getDate() {
+    return date;
+  }
+
+  /**
+   * Get the number of people inside the stations when the report was made.
+   *
+   * @return The population.
+   */
+  public int getPopulation() {
+    return population;
+  }
+
+  /**
+   * Get the number of people inside every station that is not empty.
+   *
+   * @return The population by "location type" of the station.
+   */
+  public Map<String, Integer> getCrowding() {
+    return crowding;
+  }
+
+  /**
+   * Get the number of stations and stops passed in the trips finished on the day.
+   *
+   * @return The number of stations.
+   */
+  public int getStationsPassed() {
+    return stationsPassed;
+  }
+
+  /**
+   * Get the money spent by all the accounts on the day.
+   *
+   * @return The account cost.
+   */
+  public double getAccountCost() {
+    return accountCost;
+  }
+
+  /**
+   * Get the money deducted from all the cards on the day.
+   *
+   * @return The card revenue.
+   */
+  public double getCardRevenue() {
+    return cardRevenue;
+  }
+
+  /**
+   * Get the number of deductions from all the cards on the day.
+   *
+   * @return The number of deductions.
+   */
+  public int getCardTimes() {
+    return cardTimes;
+  }
+
+  /**
+   * Get the number of deductions and the fares of every card type on the day.
+   *
+   * @return The {times, fare} by card type.
+   */
+  public Map<String, Double[]> getCardTypeInfo() {
+    return cardTypeInfo;
+  }
+
+  /**
+   * Get the string representation of the report, as shown to the admin user.
+   *
+   * @return The report.
+   */
+  @Override
+  public String toString() {
+    String lineSeparator = System.getProperty("line.separator");
+    StringBuilder report = new StringBuilder();
+    report.append("Current population inside station is: ").append(population);
+    for (Map.Entry<String, Integer> station : crowding.entrySet()) {
+      report.append(lineSeparator).append(station.getKey()).append(": ").append(station.getValue());
+    }
+    report.append(lineSeparator).append("You are viewing system report on: ").append(date);
+    report
+        .append(lineSeparator)
+        .append(String.format("The number of stations/stops that users passed: %d", stationsPassed));
+    report.append(lineSeparator).append("The total account cost is: $").append(accountCost);
+    report.append(lineSeparator).append("The card total cost is: $").append(cardRevenue);
+    report.append(lineSeparator).append("The card total deduct times is: ").append(cardTimes);
+    for (Map.Entry<String, Double[]> cardType : cardTypeInfo.entrySet()) {
+      report.append(lineSeparator).append(cardType.getKey()).append(": ");
+      report.append(lineSeparator).append("Total times: ");
+      report.append(cardType.getValue()[0].intValue());
+      report.append(lineSeparator).append("Total fare: $").append(cardType.getValue()[1]);
+    }
+    return report.toString();
+  }
+}
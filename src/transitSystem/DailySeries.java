@@ -0,0 +1,148 @@
+package transitSystem;
+
+import java.util.Arrays;
+
+/**
+ * A whole number for every epoch day, such as the cents spent or the taps on that day. The value
+ * of a day is kept in an array indexed by the day, next to the cumulative sums of the values up to
+ * every day, so the value of a day and the sum of any range of days are found in O(1) time. Adding
+ * to the newest day is O(1) as well; adding to an older day, as when the series is rebuilt, only
+ * marks the sums out of date and they are computed again at the next query. The arrays grow when a
+ * day outside of them is added.
+ */
+final class DailySeries {
+
+  /** The number of days the arrays hold when the first day is added. */
+  private static final int INITIAL_DAYS = 512;
+
+  /** The epoch day of index 0. */
+  private int base;
+
+  /** The index of the newest day that was added, -1 if no day was added. */
+  private int last = -1;
+
+  /** The value of every day from base on. */
+  private long[] values = new long[0];
+
+  /** The sum of the values from base to every day, up to last. */
+  private long[] prefix = new long[0];
+
+  /** Whether the sums are out of date. */
+  private boolean stale;
+
+  /**
+   * Add to the value of a day.
+   *
+   * @param day The epoch day.
+   * @param amount The amount added.
+   */
+  void add(int day, long amount) {
+    ensureDay(day);
+    int index = day - base;
+    values[index] += amount;
+    if (index < last) {
+      stale = true;
+      return;
+    }
+    if (stale) {
+      last = index;
+    } else if (index == last) {
+      prefix[index] += amount;
+    } else {
+      // the days between the newest day and this day have the same sum as the newest day
+      long before = (last < 0) ? 0 : prefix[last];
+      Arrays.fill(prefix, last + 1, index, before);
+      prefix[index] = before + amount;
+      last = index;
+    }
+  }
+
+  /**
+   * Get the value of a day.
+   *
+   * @param day The epoch day.
+   * @return The value, 0 if nothing was added on that day.
+   */
+  long get(int day) {
+    long index = (long) day - base;
+    return (index >= 0 && index <= last) ? values[(int) index] : 0;
+  }
+
+  /**
+   * Get the sum of the values of a range of days.
+   *
+   * @param fromDay The first epoch day of the range.
+   * @param toDay The last epoch day of the range.
+   * @return The sum, 0 if the range is empty.
+   */
+  long sum(int fromDay, int toDay) {
+    if (fromDay > toDay) {
+      return 0;
+    }
+    return prefix(toDay) - prefix((long) fromDay - 1);
+  }
+
+  /**
+   * Set the value of every day before a day to 0.
+   *
+   * @param firstKeptDay The epoch day of the oldest value that is kept.
+   */
+  void clearBefore(int firstKeptDay) {
+    long end = Math.min((long) firstKeptDay - base, last + 1);
+    if (end > 0) {
+      Arrays.fill(values, 0, (int) end, 0);
+      stale = true;
+    }
+  }
+
+  /**
+   * Get the sum of the values up to a day.
+   *
+   * @param day The last epoch day of the sum.
+   * @return The sum of the values of the days before and on the day.
+   */
+  private long prefix(long day) {
+    if (stale) {
+      rebuild();
+    }
+    long index = Math.min(day - base, last);
+    return index < 0 ? 0 : prefix[(int) index];
+  }
+
+  /**
+   * Make the arrays hold a day.
+   *
+   * @param day The epoch day.
+   */
+  private void ensureDay(int day) {
+    if (values.length == 0) {
+      base = day;
+      values = new long[INITIAL_DAYS];
+      prefix = new long[INITIAL_DAYS];
+      return;
+    }
+    int index = day - base;
+    if (index >= 0 && index < values.length) {
+      return;
+    }
+    int newBase = Math.min(base, day);
+    int newLength = Math.max(values.length * 2, Math.max(base + values.length, day + 1) - newBase);
+    long[] newValues = new long[newLength];
+    System.arraycopy(values, 0, newValues, base - newBase, values.length);
+    last += base - newBase;
+    base = newBase;
+    values = newValues;
+    prefix = new long[newLength];
+    stale = true;
+  }
+
+  /** Compute the sums from the values in O(n) time. */
+  private void rebuild() {
+    long sum = 0;
+    for (int i = 0; i <= last; i++) {
+      sum += values[i];
+      prefix[i] = sum;
+    }
+    stale = false;
+  }
+}
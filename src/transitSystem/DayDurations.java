@@ -0,0 +1,250 @@
+package transitSystem;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The durations of the trips of one day, as a DurationHistogram for every pair of stations and
+ * for every line. A day is written as records of two kinds: one trip, appended when the card taps
+ * out, and the whole histogram of a pair of stations, written when the day is compacted. The
+ * histograms of the lines are not written, since they are rebuilt from the pairs.
+ */
+final class DayDurations {
+
+  /** Finds the lines that a trip between two stations rode. */
+  interface Lines {
+
+    /**
+     * Get the lines that pass both stations.
+     *
+     * @param origin The id of the station where the trip started.
+     * @param destination The id of the station where the trip ended.
+     * @return The ids of the lines, empty if no line passes both.
+     */
+    int[] between(int origin, int destination);
+  }
+
+  /** The kind of a record of one trip. */
+  static final byte TRIP = 0;
+
+  /** The kind of a record of the histogram of a pair of stations. */
+  static final byte PAIR = 1;
+
+  /** Finds the lines of the trips. */
+  private final Lines lines;
+
+  /** The histogram of every pair of stations that has trips, by OdMatrix.key. */
+  private final HashMap<Long, DurationHistogram> pairs = new HashMap<>();
+
+  /** The histogram of every line id, null if the line has no trip. */
+  private DurationHistogram[] byLine = new DurationHistogram[0];
+
+  /**
+   * Create the durations of a day.
+   *
+   * @param lines Finds the lines of the trips.
+   */
+  DayDurations(Lines lines) {
+    this.lines = lines;
+  }
+
+  /**
+   * Add a trip.
+   *
+   * @param origin The id of the station where the trip started.
+   * @param destination The id of the station where the trip ended.
+   * @param seconds The duration of the trip in seconds.
+   */
+  void add(int origin, int destination, long seconds) {
+    pairOf(origin, destination).add(seconds);
+    for (int lineId : lines.between(origin, destination)) {
+      lineOf(lineId).add(seconds);
+    }
+  }
+
+  /**
+   * Add the trips between two stations to a histogram.
+   *
+   * @param origin The id of the station where the trips started.
+   * @param destination The id of the station where the trips ended.
+   * @param into The histogram that the trips are added to.
+   */
+  void mergePairInto(int origin, int destination, DurationHistogram into) {
+    DurationHistogram histogram = pairs.get(OdMatrix.key(origin, destination));
+    if (histogram != null) {
+      into.merge(histogram);
+    }
+  }
+
+  /**
+   * Add the trips of a line to a histogram.
+   *
+   * @param lineId The id of the line.
+   * @param into The histogram that the trips are added to.
+   */
+  void mergeLineInto(int lineId, DurationHistogram into) {
+    if (lineId >= 0 && lineId < byLine.length && byLine[lineId] != null) {
+      into.merge(byLine[lineId]);
+    }
+  }
+
+  /**
+   * Add all the trips of other durations, such as the ones of another day.
+   *
+   * @param other The other durations.
+   */
+  void mergeFrom(DayDurations other) {
+    for (Map.Entry<Long, DurationHistogram> pair : other.pairs.entrySet()) {
+      pairs.computeIfAbsent(pair.getKey(), key -> new DurationHistogram()).merge(pair.getValue());
+    }
+    for (int lineId = 0; lineId < other.byLine.length; lineId++) {
+      if (other.byLine[lineId] != null) {
+        lineOf(lineId).merge(other.byLine[lineId]);
+      }
+    }
+  }
+
+  /**
+   * Get percentiles of the durations of the trips between two stations.
+   *
+   * @param origin The id of the station where the trips started.
+   * @param destination The id of the station where the trips ended.
+   * @param percentiles The percentiles, from 0 to 100.
+   * @return The duration in seconds of every percentile, -1 if there is no trip.
+   */
+  long[] pairPercentiles(int origin, int destination, double... percentiles) {
+    DurationHistogram histogram = new DurationHistogram();
+    mergePairInto(origin, destination, histogram);
+    return percentiles(histogram, percentiles);
+  }
+
+  /**
+   * Get percentiles of the durations of the trips of a line.
+   *
+   * @param lineId The id of the line.
+   * @param percentiles The percentiles, from 0 to 100.
+   * @return The duration in seconds of every percentile, -1 if there is no trip.
+   */
+  long[] linePercentiles(int lineId, double... percentiles) {
+    DurationHistogram histogram = new DurationHistogram();
+    mergeLineInto(lineId, histogram);
+    return percentiles(histogram, percentiles);
+  }
+
+  /**
+   * Write the histogram of every pair of stations.
+   *
+   * @param out The stream to write to.
+   * @throws IOException If the stream cannot be written.
+   */
+  void writeTo(DataOutputStream out) throws IOException {
+    for (Map.Entry<Long, DurationHistogram> pair : pairs.entrySet()) {
+      out.writeByte(PAIR);
+      out.writeInt((int) (pair.getKey() >>> 32));
+      out.writeInt(pair.getKey().intValue());
+      pair.getValue().writeTo(out);
+    }
+  }
+
+  /**
+   * Write one trip.
+   *
+   * @param out The stream to write to.
+   * @param origin The id of the station where the trip started.
+   * @param destination The id of the station where the trip ended.
+   * @param seconds The duration of the trip in seconds.
+   * @throws IOException If the stream cannot be written.
+   */
+  static void writeTrip(DataOutputStream out, int origin, int destination, long seconds)
+      throws IOException {
+    out.writeByte(TRIP);
+    out.writeInt(origin);
+    out.writeInt(destination);
+    out.writeInt((int) Math.min(seconds, DurationHistogram.MAX_SECONDS));
+  }
+
+  /**
+   * Read records written by writeTo or writeTrip until the end of a stream. A record that was cut
+   * short at the end of the stream is ignored.
+   *
+   * @param in The stream to read from.
+   * @param lines Finds the lines of the trips.
+   * @return The durations of the records.
+   * @throws IOException If the stream cannot be read or has a record of an unknown kind.
+   */
+  static DayDurations readFrom(DataInputStream in, Lines lines) throws IOException {
+    DayDurations durations = new DayDurations(lines);
+    try {
+      while (true) {
+        int kind = in.read();
+        if (kind < 0) {
+          return durations;
+        }
+        int origin = in.readInt();
+        int destination = in.readInt();
+        if (kind == TRIP) {
+          durations.add(origin, destination, in.readInt());
+        } else if (kind == PAIR) {
+          DurationHistogram histogram = new DurationHistogram();
+          histogram.readFrom(in);
+          durations.pairOf(origin, destination).merge(histogram);
+          for (int lineId : lines.between(origin, destination)) {
+            durations.lineOf(lineId).merge(histogram);
+          }
+        } else {
+          throw new IOException("Unknown record kind " + kind);
+        }
+      }
+    } catch (EOFException ex) {
+      // the last record was cut short when it was appended
+      return durations;
+    }
+  }
+
+  /**
+   * Get percentiles of a histogram.
+   *
+   * @param histogram The histogram.
+   * @param percentiles The percentiles.
+   * @return The duration in seconds of every percentile, -1 if the histogram is empty.
+   */
+  private static long[] percentiles(DurationHistogram histogram, double[] percentiles) {
+    long[] durations = new long[percentiles.length];
+    for (int i = 0; i < percentiles.length; i++) {
+      durations[i] = histogram.percentile(percentiles[i]);
+    }
+    return durations;
+  }
+
+  /**
+   * Get the histogram of a pair of stations, creating it if the pair has no trip yet.
+   *
+   * @param origin The id of the origin.
+   * @param destination The id of the destination.
+   * @return The histogram.
+   */
+  private DurationHistogram pairOf(int origin, int destination) {
+    return pairs.computeIfAbsent(OdMatrix.key(origin, destination), key -> new DurationHistogram());
+  }
+
+  /**
+   * Get the histogram of a line, creating it if the line has no trip yet.
+   *
+   * @param lineId The id of the line.
+   * @return The histogram.
+   */
+  private DurationHistogram lineOf(int lineId) {
+    if (lineId >= byLine.length) {
+      byLine = Arrays.copyOf(byLine, lineId + 1);
+    }
+    if (byLine[lineId] == null) {
+      byLine[lineId] = new DurationHistogram();
+    }
+    return byLine[lineId];
+  }
+}
@@ -0,0 +1,280 @@
+package transitSystem;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.logging.Level;
+
+/**
+ * Reads and writes the files of the records that are kept for every day, such as the
+ * origin-destination counts. The file of a day is "data-partitions/kind/yyyy-MM/yyyy-MM-dd.bin",
+ * so the records of a day are read without reading any other day, and a whole month can be
+ * deleted as one directory.
+ */
+final class DayPartitions {
+
+  /** Writes records to a partition. */
+  interface Writer {
+
+    /**
+     * Write the records.
+     *
+     * @param out The stream of the partition.
+     * @throws IOException If the stream cannot be written.
+     */
+    void write(DataOutputStream out) throws IOException;
+  }
+
+  /**
+   * Reads all the records of a partition.
+   *
+   * @param <T> The type of the records.
+   */
+  interface Reader<T> {
+
+    /**
+     * Read the records.
+     *
+     * @param in The stream of the partition.
+     * @return The records.
+     * @throws IOException If the stream cannot be read.
+     */
+    T read(DataInputStream in) throws IOException;
+  }
+
+  /**
+   * Records of one kind that are collected in memory and appended to the partition of their day
+   * in one write when they are flushed, instead of opening the file for every record. The records
+   * are only of one day at a time: a record of another day flushes the records before it. The
+   * caller flushes the batch before it reads or rewrites the partition of the day.
+   */
+  static final class Batch {
+
+    /** The number of bytes after which the records are flushed without being asked to. */
+    static final int MAX_BYTES = 64 * 1024;
+
+    /** The kind of the records. */
+    private final String kind;
+
+    /** The records that are not appended yet. */
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    /** Writes the records into bytes. */
+    private final DataOutputStream out = new DataOutputStream(bytes);
+
+    /** The epoch day of the records that are not appended yet. */
+    private int day;
+
+    /**
+     * Create an empty batch.
+     *
+     * @param kind The kind of the records.
+     */
+    Batch(String kind) {
+      this.kind = kind;
+    }
+
+    /**
+     * Add records of a day to the batch.
+     *
+     * @param day The epoch day.
+     * @param writer Writes the records.
+     */
+    void append(int day, Writer writer) {
+      if (bytes.size() > 0 && day != this.day) {
+        flush();
+      }
+      this.day = day;
+      try {
+        writer.write(out);
+      } catch (IOException ex) {
+        // the records are written to memory
+        throw new IllegalStateException(ex);
+      }
+      if (bytes.size() >= MAX_BYTES) {
+        flush();
+      }
+    }
+
+    /**
+     * Append the records of the batch to the partition of their day and empty the batch.
+     *
+     * @return The number of bytes appended.
+     */
+    int flush() {
+      int size = bytes.size();
+      if (size > 0) {
+        DayPartitions.append(kind, day, bytes::writeTo);
+        bytes.reset();
+      }
+      return size;
+    }
+  }
+
+  /** The directory of all the partitions. */
+  static final File ROOT = new File("data-partitions");
+
+  /** This class only contains static helpers. */
+  private DayPartitions() {}
+
+  /**
+   * Get the file of a kind of record on a day. The directories are not created.
+   *
+   * @param kind The kind of record, e.g. "od".
+   * @param day The epoch day.
+   * @return The file of the day.
+   */
+  static File file(String kind, int day) {
+    String date = EpochDay.format(day);
+    return new File(new File(new File(ROOT, kind), date.substring(0, 7)), date + ".bin");
+  }
+
+  /**
+   * Append records to the partition of a day. The records are buffered and handed to the file
+   * system in one write, so a crash rarely cuts a record short; the readers ignore a record that
+   * was cut short at the end of a partition.
+   *
+   * @param kind The kind of record.
+   * @param day The epoch day.
+   * @param writer Writes the records.
+   */
+  static void append(String kind, int day, Writer writer) {
+    File file = fileForWriting(kind, day);
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)))) {
+      writer.write(out);
+    } catch (IOException ex) {
+      Logging.getLogger().log(Level.WARNING, "IOException is caught when append to " + file, ex);
+    }
+  }
+
+  /**
+   * Replace all the records of the partition of a day. The new records are written to another
+   * file, which then replaces the partition in one atomic move, so the partition has either the
+   * old or the new records even if the system stops in between.
+   *
+   * @param kind The kind of record.
+   * @param day The epoch day.
+   * @param writer Writes the records.
+   * @return The size of the new file in bytes, 0 if it could not be written.
+   */
+  static long rewrite(String kind, int day, Writer writer) {
+    File file = fileForWriting(kind, day);
+    File rewritten = new File(file.getPath() + ".tmp");
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(rewritten)))) {
+      writer.write(out);
+    } catch (IOException ex) {
+      Logging.getLogger().log(Level.WARNING, "IOException is caught when rewrite " + file, ex);
+      return 0;
+    }
+    try {
+      Files.move(
+          rewritten.toPath(),
+          file.toPath(),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException ex) {
+      Logging.getLogger().log(Level.WARNING, "IOException is caught when replace " + file, ex);
+      return 0;
+    }
+    return file.length();
+  }
+
+  /**
+   * Read the records of the partition of a day.
+   *
+   * @param kind The kind of record.
+   * @param day The epoch day.
+   * @param reader Reads the records.
+   * @param <T> The type of the records.
+   * @return The records, or null if the day has no partition or it cannot be read.
+   */
+  static <T> T read(String kind, int day, Reader<T> reader) {
+    File file = file(kind, day);
+    if (!file.exists()) {
+      return null;
+    }
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      return reader.read(in);
+    } catch (IOException ex) {
+      Logging.getLogger().log(Level.WARNING, "IOException is caught when read " + file, ex);
+      return null;
+    }
+  }
+
+  /**
+   * Delete the month directories of every kind of record whose days are all before a day. Only
+   * the names of the directories are read, so the time does not depend on the size of the records.
+   *
+   * @param firstKeptDay The first epoch day that is kept.
+   * @return The number of month directories deleted.
+   */
+  static int dropMonthsBefore(int firstKeptDay) {
+    int dropped = 0;
+    File[] kinds = ROOT.listFiles(File::isDirectory);
+    if (kinds == null) {
+      return 0;
+    }
+    for (File kind : kinds) {
+      File[] months = kind.listFiles(File::isDirectory);
+      if (months == null) {
+        continue;
+      }
+      for (File month : months) {
+        Integer epochMonth = EpochDay.parseMonth(month.getName());
+        if (epochMonth != null && EpochDay.firstDayOf(epochMonth + 1) <= firstKeptDay) {
+          if (deleteDirectory(month)) {
+            dropped++;
+          } else {
+            Logging.getLogger().log(Level.WARNING, "Cannot delete {}", month);
+          }
+        }
+      }
+    }
+    return dropped;
+  }
+
+  /**
+   * Delete a month directory and its day files.
+   *
+   * @param directory The directory.
+   * @return True if the directory is deleted.
+   */
+  private static boolean deleteDirectory(File directory) {
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        if (!file.delete()) {
+          Logging.getLogger().log(Level.WARNING, "Cannot delete {}", file);
+        }
+      }
+    }
+    return directory.delete();
+  }
+
+  /**
+   * Get the file of a kind of record on a day, creating its directories.
+   *
+   * @param kind The kind of record.
+   * @param day The epoch day.
+   * @return The file of the day.
+   */
+  private static File fileForWriting(String kind, int day) {
+    File file = file(kind, day);
+    File directory = file.getParentFile();
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      Logging.getLogger().log(Level.WARNING, "Cannot create directory {}", directory);
+    }
+    return file;
+  }
+}
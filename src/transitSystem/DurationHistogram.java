@@ -0,0 +1,167 @@
+package transitSystem;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The number of trips of every duration in seconds, in log-linear buckets as in an HDR histogram.
+ * The durations below 64 seconds have a bucket each, and every power of two above that is split
+ * into 32 buckets, so a percentile is within about 3% of the real duration. The counts are a fixed
+ * array, so a percentile is found by one pass over it however many trips were added, and two
+ * histograms are merged by adding the arrays.
+ */
+final class DurationHistogram {
+
+  /** The number of bits of a duration that choose the bucket inside its power of two. */
+  private static final int SUB_BUCKET_BITS = 5;
+
+  /** The number of buckets inside every power of two. */
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  /** The longest duration in seconds that is counted; a longer one is counted as this one. */
+  static final long MAX_SECONDS = (1L << 23) - 1;
+
+  /** The number of buckets. */
+  static final int BUCKETS = index(MAX_SECONDS) + 1;
+
+  /** The number of trips of every bucket. */
+  private final int[] counts = new int[BUCKETS];
+
+  /** The number of trips. */
+  private long total;
+
+  /**
+   * Add a trip.
+   *
+   * @param seconds The duration of the trip in seconds.
+   */
+  void add(long seconds) {
+    add(index(seconds), 1);
+  }
+
+  /**
+   * Add all the trips of another histogram.
+   *
+   * @param other The other histogram.
+   */
+  void merge(DurationHistogram other) {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] += other.counts[i];
+    }
+    total += other.total;
+  }
+
+  /**
+   * Get the number of trips.
+   *
+   * @return The number of trips.
+   */
+  long total() {
+    return total;
+  }
+
+  /**
+   * Get the duration that a percentage of the trips are not longer than.
+   *
+   * @param percentile The percentage, from 0 to 100, e.g. 95 for p95.
+   * @return The largest duration in seconds of the bucket of the percentile, or -1 if there is no
+   *     trip.
+   */
+  long percentile(double percentile) {
+    if (total == 0) {
+      return -1;
+    }
+    long rank = Math.max(1, (long) Math.ceil(total * Math.min(Math.max(percentile, 0), 100) / 100));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return highest(i);
+      }
+    }
+    return MAX_SECONDS;
+  }
+
+  /**
+   * Write the buckets that have trips.
+   *
+   * @param out The stream to write to.
+   * @throws IOException If the stream cannot be written.
+   */
+  void writeTo(DataOutputStream out) throws IOException {
+    int used = 0;
+    for (int count : counts) {
+      if (count != 0) {
+        used++;
+      }
+    }
+    out.writeShort(used);
+    for (int i = 0; i < BUCKETS; i++) {
+      if (counts[i] != 0) {
+        out.writeShort(i);
+        out.writeInt(counts[i]);
+      }
+    }
+  }
+
+  /**
+   * Add the buckets written by writeTo.
+   *
+   * @param in The stream to read from.
+   * @throws IOException If the stream cannot be read or has a bucket that does not exist.
+   */
+  void readFrom(DataInputStream in) throws IOException {
+    int used = in.readUnsignedShort();
+    for (int i = 0; i < used; i++) {
+      int index = in.readUnsignedShort();
+      int count = in.readInt();
+      if (index >= BUCKETS) {
+        throw new IOException("Invalid duration bucket " + index);
+      }
+      add(index, count);
+    }
+  }
+
+  /**
+   * Add trips to a bucket.
+   *
+   * @param index The bucket.
+   * @param count The number of trips.
+   */
+  private void add(int index, int count) {
+    counts[index] += count;
+    total += count;
+  }
+
+  /**
+   * Get the bucket of a duration.
+   *
+   * @param seconds The duration in seconds.
+   * @return The index of the bucket.
+   */
+  private static int index(long seconds) {
+    long value = Math.min(Math.max(seconds, 0), MAX_SECONDS);
+    if (value < 2 * SUB_BUCKETS) {
+      return (int) value;
+    }
+    // keep the highest SUB_BUCKET_BITS + 1 bits of the value
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+  }
+
+  /**
+   * Get the longest duration of a bucket.
+   *
+   * @param index The index of the bucket.
+   * @return The duration in seconds.
+   */
+  private static long highest(int index) {
+    if (index < 2 * SUB_BUCKETS) {
+      return index;
+    }
+    int shift = index / SUB_BUCKETS - 1;
+    long first = (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+    return first + (1L << shift) - 1;
+  }
+}
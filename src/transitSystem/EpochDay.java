@@ -0,0 +1,129 @@
+package transitSystem;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.TimeZone;
+
+/**
+ * Converts between epoch-millisecond time stamps, local epoch days and "yyyy-MM-dd" strings. The
+ * core model keeps time as primitives; strings are only produced for the UI and for reports. A
+ * month is kept as an epoch month, the number of months since 1970-01.
+ */
+public final class EpochDay {
+
+  /** The number of milliseconds in a day. */
+  static final long MILLIS_PER_DAY = 86_400_000L;
+
+  /** The number of days that a record is kept before it is deleted, about ten years. */
+  static final int RETENTION_DAYS = 3652;
+
+  /** The time zone of the system, read once since TimeZone.getDefault() returns a copy. */
+  private static final TimeZone ZONE = TimeZone.getDefault();
+
+  /** This class only contains static helpers. */
+  private EpochDay() {}
+
+  /**
+   * Get the local epoch day of a time stamp.
+   *
+   * @param millis The time in milliseconds since the epoch.
+   * @return The number of days since 1970-01-01 in the system time zone.
+   */
+  public static int of(long millis) {
+    return (int) Math.floorDiv(millis + ZONE.getOffset(millis), MILLIS_PER_DAY);
+  }
+
+  /**
+   * Get the local hour of a time stamp.
+   *
+   * @param millis The time in milliseconds since the epoch.
+   * @return The hour of the day in the system time zone, from 0 to 23.
+   */
+  public static int hourOf(long millis) {
+    return (int) (Math.floorMod(millis + ZONE.getOffset(millis), MILLIS_PER_DAY) / 3_600_000L);
+  }
+
+  /**
+   * Get the epoch day of a date string.
+   *
+   * @param date The date in the format "yyyy-MM-dd".
+   * @return The number of days since 1970-01-01, or null if the date is not valid.
+   */
+  public static Integer parse(String date) {
+    try {
+      return (int) LocalDate.parse(date).toEpochDay();
+    } catch (DateTimeParseException | NullPointerException ex) {
+      return null;
+    }
+  }
+
+  /**
+   * Get the date string of an epoch day.
+   *
+   * @param epochDay The number of days since 1970-01-01.
+   * @return The date in the format "yyyy-MM-dd".
+   */
+  public static String format(int epochDay) {
+    return LocalDate.ofEpochDay(epochDay).toString();
+  }
+
+  /**
+   * Get the time stamp of the start of an epoch day.
+   *
+   * @param epochDay The number of days since 1970-01-01.
+   * @return The time in milliseconds of the local midnight of that day.
+   */
+  public static long startMillis(int epochDay) {
+    long utcMidnight = epochDay * MILLIS_PER_DAY;
+    return utcMidnight - ZONE.getOffset(utcMidnight - ZONE.getRawOffset());
+  }
+
+  /**
+   * Get the epoch month of an epoch day.
+   *
+   * @param epochDay The number of days since 1970-01-01.
+   * @return The number of months since 1970-01.
+   */
+  public static int monthOf(int epochDay) {
+    LocalDate date = LocalDate.ofEpochDay(epochDay);
+    return (date.getYear() - 1970) * 12 + date.getMonthValue() - 1;
+  }
+
+  /**
+   * Get the first epoch day of an epoch month.
+   *
+   * @param epochMonth The number of months since January 1970.
+   * @return The epoch day of the first of the month.
+   */
+  public static int firstDayOf(int epochMonth) {
+    int year = 1970 + Math.floorDiv(epochMonth, 12);
+    return (int) YearMonth.of(year, Math.floorMod(epochMonth, 12) + 1).atDay(1).toEpochDay();
+  }
+
+  /**
+   * Get the epoch month of a month string.
+   *
+   * @param month The month in the format "yyyy-MM".
+   * @return The number of months since 1970-01, or null if the month is not valid.
+   */
+  public static Integer parseMonth(String month) {
+    try {
+      YearMonth yearMonth = YearMonth.parse(month);
+      return (yearMonth.getYear() - 1970) * 12 + yearMonth.getMonthValue() - 1;
+    } catch (DateTimeParseException | NullPointerException ex) {
+      return null;
+    }
+  }
+
+  /**
+   * Get the month string of an epoch month.
+   *
+   * @param epochMonth The number of months since 1970-01.
+   * @return The month in the format "yyyy-MM".
+   */
+  public static String formatMonth(int epochMonth) {
+    return YearMonth.of(1970 + Math.floorDiv(epochMonth, 12), Math.floorMod(epochMonth, 12) + 1)
+        .toString();
+  }
+}
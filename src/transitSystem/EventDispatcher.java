@@ -0,0 +1,191 @@
+package transitSystem;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+/**
+ * Delivers notifications to their observers on a background thread, so that a slow observer does
+ * not slow down the tap that caused the notification. Every observer has its own queue. An
+ * observer can limit how many times per second it is updated, and notifications with the same
+ * coalescing key that are still waiting in its queue are replaced by the newest one.
+ */
+public class EventDispatcher {
+
+  /** An observer of the notifications of a dispatcher. */
+  public interface Listener {
+
+    /**
+     * Handle a notification, run by the delivery executor of the observer.
+     *
+     * @param event The notification, e.g. a TransitEvent or the CardHolderAccount that changed.
+     */
+    void onEvent(Object event);
+  }
+
+  /** The thread that drains the queues of the observers. */
+  private final ScheduledExecutorService executor;
+
+  /** The queue of every observer. */
+  private final CopyOnWriteArrayList<ObserverQueue> queues = new CopyOnWriteArrayList<>();
+
+  /**
+   * Create a dispatcher with its own daemon thread.
+   *
+   * @param name The name of the thread.
+   */
+  EventDispatcher(String name) {
+    this.executor =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, name);
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /**
+   * Add an observer that is told about every notification on the dispatcher thread.
+   *
+   * @param observer The observer.
+   */
+  public void subscribe(Listener observer) {
+    subscribe(observer, 0, null, Runnable::run);
+  }
+
+  /**
+   * Add an observer. Adding an observer that was already added does nothing.
+   *
+   * @param observer The observer.
+   * @param maxUpdatesPerSecond The most times per second the observer is updated, 0 for no limit.
+   * @param coalesceKey Gives the key of a notification, only the newest notification of a key is
+   *     delivered; null to deliver every notification.
+   * @param deliveryExecutor Runs the updates of the observer, e.g. on the UI thread.
+   */
+  public void subscribe(
+      Listener observer,
+      int maxUpdatesPerSecond,
+      Function<Object, Object> coalesceKey,
+      Executor deliveryExecutor) {
+    for (ObserverQueue queue : queues) {
+      if (queue.observer == observer) {
+        return;
+      }
+    }
+    long interval = maxUpdatesPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / maxUpdatesPerSecond : 0;
+    queues.add(new ObserverQueue(observer, interval, coalesceKey, deliveryExecutor));
+  }
+
+  /**
+   * Remove an observer. Notifications that are still in its queue are dropped.
+   *
+   * @param observer The observer.
+   */
+  public void unsubscribe(Listener observer) {
+    queues.removeIf(queue -> queue.observer == observer);
+  }
+
+  /**
+   * Hand a notification to the queue of every observer and return without waiting for them.
+   *
+   * @param arg The notification.
+   */
+  void publish(Object arg) {
+    for (ObserverQueue queue : queues) {
+      queue.offer(arg);
+    }
+  }
+
+  /** The notifications that are waiting to be delivered to one observer. */
+  private class ObserverQueue implements Runnable {
+
+    /** The observer of this queue. */
+    private final Listener observer;
+
+    /** The least time in nanoseconds between two deliveries. */
+    private final long intervalNanos;
+
+    /** Gives the coalescing key of a notification, null if nothing is coalesced. */
+    private final Function<Object, Object> coalesceKey;
+
+    /** Runs the updates of the observer. */
+    private final Executor deliveryExecutor;
+
+    /** The waiting notifications in the order they were published, by coalescing key. */
+    private LinkedHashMap<Object, Object> pending = new LinkedHashMap<>();
+
+    /** The number of notifications published, used as key when nothing is coalesced. */
+    private long sequence;
+
+    /** Whether a delivery of this queue is scheduled. */
+    private boolean scheduled;
+
+    /** The time in nanoseconds of the last delivery. */
+    private long lastDelivery;
+
+    /**
+     * Create the queue of an observer.
+     *
+     * @param observer The observer of this queue.
+     * @param intervalNanos The least time in nanoseconds between two deliveries.
+     * @param coalesceKey Gives the coalescing key of a notification, null for no coalescing.
+     * @param deliveryExecutor Runs the updates of the observer.
+     */
+    ObserverQueue(
+        Listener observer,
+        long intervalNanos,
+        Function<Object, Object> coalesceKey,
+        Executor deliveryExecutor) {
+      this.observer = observer;
+      this.intervalNanos = intervalNanos;
+      this.coalesceKey = coalesceKey;
+      this.deliveryExecutor = deliveryExecutor;
+      this.lastDelivery = System.nanoTime() - intervalNanos;
+    }
+
+    /**
+     * Add a notification to the queue and schedule a delivery if none is scheduled.
+     *
+     * @param arg The notification.
+     */
+    synchronized void offer(Object arg) {
+      Object key = (coalesceKey == null) ? sequence++ : coalesceKey.apply(arg);
+      // the newest notification of a key goes to the end of the queue
+      pending.remove(key);
+      pending.put(key, arg);
+      if (!scheduled) {
+        scheduled = true;
+        long delay = Math.max(0, lastDelivery + intervalNanos - System.nanoTime());
+        executor.schedule(this, delay, TimeUnit.NANOSECONDS);
+      }
+    }
+
+    /** Deliver all the waiting notifications to the observer. */
+    @Override
+    public void run() {
+      ArrayList<Object> batch;
+      synchronized (this) {
+        batch = new ArrayList<>(pending.values());
+        pending = new LinkedHashMap<>();
+        scheduled = false;
+        lastDelivery = System.nanoTime();
+      }
+      deliveryExecutor.execute(
+          () -> {
+            for (Object arg : batch) {
+              try {
+                observer.onEvent(arg);
+              } catch (RuntimeException ex) {
+                Logging.getLogger().log(Level.WARNING, "An observer failed to update", ex);
+              }
+            }
+          });
+    }
+  }
+}
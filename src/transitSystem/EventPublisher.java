@@ -0,0 +1,302 @@
+package transitSystem;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Publishes items to subscribers that consume them at their own pace. It follows the contract of
+ * the reactive streams in java.util.concurrent.Flow, which is not part of JDK 1.8: a subscriber
+ * asks for items with Subscription.request and gets them on a background thread. Every subscriber
+ * has a bounded buffer. By default the producer never waits, and an item that does not fit into a
+ * full buffer is dropped for that subscriber and counted. A subscriber that must not lose items,
+ * such as the AuditLog, can instead make the producer wait until its buffer has room.
+ *
+ * @param <T> The type of the items.
+ */
+public class EventPublisher<T> {
+
+  /**
+   * Receives the items of an EventPublisher.
+   *
+   * @param <T> The type of the items.
+   */
+  public interface Subscriber<T> {
+
+    /**
+     * Called once before any other method, with the subscription to request items from.
+     *
+     * @param subscription The subscription of this subscriber.
+     */
+    void onSubscribe(Subscription subscription);
+
+    /**
+     * Called with the next item that was requested.
+     *
+     * @param item The item.
+     */
+    void onNext(T item);
+
+    /**
+     * Called when the subscription fails, no other method is called after it.
+     *
+     * @param throwable The reason of the failure.
+     */
+    void onError(Throwable throwable);
+
+    /** Called when the publisher is closed and all the buffered items are delivered. */
+    void onComplete();
+  }
+
+  /** The link between an EventPublisher and one of its subscribers. */
+  public interface Subscription {
+
+    /**
+     * Ask for more items.
+     *
+     * @param n The number of items, more than 0; Long.MAX_VALUE for no limit.
+     */
+    void request(long n);
+
+    /** Stop receiving items. */
+    void cancel();
+  }
+
+  /** The default number of items buffered for each subscriber. */
+  static final int DEFAULT_BUFFER_CAPACITY = 1024;
+
+  /** The threads that deliver the items. */
+  private final ExecutorService executor;
+
+  /** The subscriptions that are not cancelled. */
+  private final CopyOnWriteArrayList<BufferedSubscription> subscriptions =
+      new CopyOnWriteArrayList<>();
+
+  /** The number of items dropped because a buffer was full. */
+  private final AtomicLong dropped = new AtomicLong();
+
+  /** Whether this publisher is closed. */
+  private volatile boolean closed;
+
+  /**
+   * Create a publisher with its own daemon threads.
+   *
+   * @param name The name of the threads.
+   */
+  EventPublisher(String name) {
+    this.executor =
+        Executors.newCachedThreadPool(
+            runnable -> {
+              Thread thread = new Thread(runnable, name);
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /**
+   * Add a subscriber with the default buffer size.
+   *
+   * @param subscriber The subscriber.
+   */
+  public void subscribe(Subscriber<? super T> subscriber) {
+    subscribe(subscriber, DEFAULT_BUFFER_CAPACITY);
+  }
+
+  /**
+   * Add a subscriber. Its onSubscribe is called before this method returns.
+   *
+   * @param subscriber The subscriber.
+   * @param bufferCapacity The most items that are kept for the subscriber until it requests them.
+   */
+  public void subscribe(Subscriber<? super T> subscriber, int bufferCapacity) {
+    subscribe(subscriber, bufferCapacity, false);
+  }
+
+  /**
+   * Add a subscriber. Its onSubscribe is called before this method returns.
+   *
+   * @param subscriber The subscriber.
+   * @param bufferCapacity The most items that are kept for the subscriber until it requests them.
+   * @param waitWhenFull True if submit waits for room in a full buffer instead of dropping the
+   *     item; the subscriber then slows down the producer, so it should request Long.MAX_VALUE.
+   */
+  public void subscribe(
+      Subscriber<? super T> subscriber, int bufferCapacity, boolean waitWhenFull) {
+    BufferedSubscription subscription =
+        new BufferedSubscription(subscriber, bufferCapacity, waitWhenFull);
+    subscriber.onSubscribe(subscription);
+    if (closed) {
+      subscription.complete();
+    } else {
+      subscriptions.add(subscription);
+    }
+  }
+
+  /**
+   * Hand an item to every subscriber, waiting only for the full buffers of the subscribers that
+   * asked for it.
+   *
+   * @param item The item.
+   */
+  void submit(T item) {
+    for (BufferedSubscription subscription : subscriptions) {
+      subscription.offer(item);
+    }
+  }
+
+  /** Deliver the buffered items, then complete every subscriber. */
+  void close() {
+    closed = true;
+    for (BufferedSubscription subscription : subscriptions) {
+      subscription.complete();
+    }
+    subscriptions.clear();
+  }
+
+  /**
+   * Get the number of items dropped because the buffer of a subscriber was full.
+   *
+   * @return The number of dropped items of all the subscribers.
+   */
+  public long getDroppedCount() {
+    return dropped.get();
+  }
+
+  /** A subscription with a bounded buffer that is drained on the threads of the publisher. */
+  private class BufferedSubscription implements Subscription, Runnable {
+
+    /** The subscriber of this subscription. */
+    private final Subscriber<? super T> subscriber;
+
+    /** The items that are not delivered yet. */
+    private final ArrayBlockingQueue<T> buffer;
+
+    /** Whether offer waits for room in a full buffer instead of dropping the item. */
+    private final boolean waitWhenFull;
+
+    /** The number of items requested and not delivered yet. */
+    private final AtomicLong demand = new AtomicLong();
+
+    /** The number of signals not handled yet by the drain loop, 0 when it is not running. */
+    private final AtomicInteger signals = new AtomicInteger();
+
+    /** Whether the subscriber cancelled or failed. */
+    private volatile boolean cancelled;
+
+    /** Whether the publisher is closed for this subscription. */
+    private volatile boolean completed;
+
+    /**
+     * Create a subscription.
+     *
+     * @param subscriber The subscriber of this subscription.
+     * @param bufferCapacity The most items that are kept until they are requested.
+     * @param waitWhenFull Whether offer waits for room in a full buffer.
+     */
+    BufferedSubscription(
+        Subscriber<? super T> subscriber, int bufferCapacity, boolean waitWhenFull) {
+      this.subscriber = subscriber;
+      this.buffer = new ArrayBlockingQueue<>(bufferCapacity);
+      this.waitWhenFull = waitWhenFull;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        cancel();
+        subscriber.onError(new IllegalArgumentException("request " + n + " items"));
+        return;
+      }
+      demand.accumulateAndGet(n, (now, more) -> (now + more < 0) ? Long.MAX_VALUE : now + more);
+      signal();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      subscriptions.remove(this);
+      buffer.clear();
+    }
+
+    /**
+     * Add an item to the buffer. If the buffer is full, wait for room or drop the item.
+     *
+     * @param item The item.
+     */
+    void offer(T item) {
+      if (cancelled) {
+        return;
+      }
+      if (!buffer.offer(item) && !(waitWhenFull && put(item))) {
+        if (dropped.getAndIncrement() % DEFAULT_BUFFER_CAPACITY == 0) {
+          Logging.getLogger()
+              .log(Level.WARNING, "A subscriber is too slow, dropped events: " + dropped.get());
+        }
+      }
+      signal();
+    }
+
+    /**
+     * Wait for room in the full buffer while the drain loop delivers the items. A cancel clears
+     * the buffer, so the wait ends then as well.
+     *
+     * @param item The item.
+     * @return True if the item was added, false if the thread was interrupted.
+     */
+    private boolean put(T item) {
+      signal();
+      try {
+        buffer.put(item);
+        return true;
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+
+    /** Deliver the buffered items, then call onComplete. */
+    void complete() {
+      completed = true;
+      signal();
+    }
+
+    /** Start the drain loop on a thread of the publisher if it is not running. */
+    private void signal() {
+      if (signals.getAndIncrement() == 0) {
+        executor.execute(this);
+      }
+    }
+
+    /** Deliver the requested items until there is no demand, no item, or no new signal. */
+    @Override
+    public void run() {
+      int missed = 1;
+      do {
+        while (!cancelled && demand.get() > 0) {
+          T item = buffer.poll();
+          if (item == null) {
+            break;
+          }
+          if (demand.get() != Long.MAX_VALUE) {
+            demand.decrementAndGet();
+          }
+          try {
+            subscriber.onNext(item);
+          } catch (RuntimeException ex) {
+            cancel();
+            subscriber.onError(ex);
+          }
+        }
+        if (!cancelled && completed && buffer.isEmpty()) {
+          cancelled = true;
+          subscriber.onComplete();
+        }
+        missed = signals.addAndGet(-missed);
+      } while (missed != 0);
+    }
+  }
+}
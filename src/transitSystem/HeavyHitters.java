@@ -0,0 +1,205 @@
+package transitSystem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the keys with the most taps, such as station ids or origin-destination pairs, over every
+ * TrafficWindow. Every bucket of a window counts the keys in a count-min sketch of DEPTH rows of
+ * WIDTH counters, and a small heap of every window keeps the candidates with the largest counts.
+ * The memory used is fixed by the sizes, however many keys there are. A count may be too high by
+ * a small fraction of all the taps of the window, never too low. Time is the time of the taps, so
+ * a window ends at the latest tap.
+ */
+final class HeavyHitters {
+
+  /** The number of rows of a sketch, each with its own hash. */
+  static final int DEPTH = 4;
+
+  /** The number of counters in a row of a sketch. */
+  static final int WIDTH = 1024;
+
+  /** The counts of one window. */
+  private static final class Window {
+
+    /** The length of a bucket in milliseconds. */
+    final long bucketMillis;
+
+    /** The counters of every bucket, DEPTH rows of WIDTH. */
+    final int[][] sketches;
+
+    /** The number of the time bucket that every bucket holds, -1 if it holds none. */
+    final long[] bucketNumbers;
+
+    /** The candidates, the smallest count on top. */
+    final PriorityQueue<long[]> heap = new PriorityQueue<>((a, b) -> Long.compare(a[1], b[1]));
+
+    /** The {key, count} of every candidate in the heap, by key. */
+    final HashMap<Long, long[]> candidates = new HashMap<>();
+
+    /**
+     * Create the counts of a window.
+     *
+     * @param window The window.
+     */
+    Window(TrafficWindow window) {
+      bucketMillis = window.bucketMillis;
+      sketches = new int[window.buckets][DEPTH * WIDTH];
+      bucketNumbers = new long[window.buckets];
+      Arrays.fill(bucketNumbers, -1);
+    }
+  }
+
+  /** The largest number of candidates kept in the heap of a window. */
+  private final int capacity;
+
+  /** The counts of every window, in the order of TrafficWindow. */
+  private final Window[] windows;
+
+  /** The time in milliseconds of the latest tap. */
+  private long now = Long.MIN_VALUE;
+
+  /**
+   * Create the counts of the keys.
+   *
+   * @param capacity The largest number of keys that top returns.
+   */
+  HeavyHitters(int capacity) {
+    this.capacity = capacity;
+    TrafficWindow[] values = TrafficWindow.values();
+    windows = new Window[values.length];
+    for (int i = 0; i < values.length; i++) {
+      windows[i] = new Window(values[i]);
+    }
+  }
+
+  /**
+   * Count a tap of a key.
+   *
+   * @param key The key, such as a station id.
+   * @param time The time in milliseconds of the tap.
+   */
+  synchronized void add(long key, long time) {
+    now = Math.max(now, time);
+    for (Window window : windows) {
+      long bucketNumber = Math.floorDiv(time, window.bucketMillis);
+      if (bucketNumber <= Math.floorDiv(now, window.bucketMillis) - window.bucketNumbers.length) {
+        // the tap is older than the whole window
+        continue;
+      }
+      int bucket = (int) Math.floorMod(bucketNumber, (long) window.bucketNumbers.length);
+      if (window.bucketNumbers[bucket] != bucketNumber) {
+        Arrays.fill(window.sketches[bucket], 0);
+        window.bucketNumbers[bucket] = bucketNumber;
+      }
+      for (int row = 0; row < DEPTH; row++) {
+        window.sketches[bucket][row * WIDTH + index(key, row)]++;
+      }
+      offer(window, key, estimate(window, key));
+    }
+  }
+
+  /**
+   * Get the keys with the most taps in a window that ends at the latest tap.
+   *
+   * @param window The window.
+   * @param k The number of keys, at most the capacity.
+   * @return The {key, count} of at most k keys with a count above 0, the most taps first.
+   */
+  synchronized ArrayList<long[]> top(TrafficWindow window, int k) {
+    Window counts = windows[window.ordinal()];
+    // the counts of the candidates went down as buckets were dropped
+    ArrayList<long[]> top = new ArrayList<>();
+    for (long[] candidate : counts.candidates.values()) {
+      long count = estimate(counts, candidate[0]);
+      if (count > 0) {
+        top.add(new long[] {candidate[0], count});
+      }
+    }
+    top.sort((a, b) -> Long.compare(b[1], a[1]));
+    return new ArrayList<>(top.subList(0, Math.min(k, top.size())));
+  }
+
+  /**
+   * Get the approximate number of taps of a key in a window that ends at the latest tap.
+   *
+   * @param window The window.
+   * @param key The key.
+   * @return The count, never less than the real count.
+   */
+  synchronized long count(TrafficWindow window, long key) {
+    return estimate(windows[window.ordinal()], key);
+  }
+
+  /**
+   * Keep a key as a candidate if its count is among the largest.
+   *
+   * @param window The counts of the window.
+   * @param key The key.
+   * @param count The count of the key.
+   */
+  private void offer(Window window, long key, long count) {
+    long[] candidate = window.candidates.get(key);
+    if (candidate != null) {
+      window.heap.remove(candidate);
+      candidate[1] = count;
+      window.heap.add(candidate);
+      return;
+    }
+    if (window.heap.size() >= capacity) {
+      long[] smallest = window.heap.peek();
+      // the count of the smallest candidate may be out of date after buckets were dropped
+      smallest[1] = estimate(window, smallest[0]);
+      if (count <= smallest[1]) {
+        window.heap.remove(smallest);
+        window.heap.add(smallest);
+        return;
+      }
+      window.heap.poll();
+      window.candidates.remove(smallest[0]);
+    }
+    candidate = new long[] {key, count};
+    window.heap.add(candidate);
+    window.candidates.put(key, candidate);
+  }
+
+  /**
+   * Get the count of a key in the buckets of a window that are still in it.
+   *
+   * @param window The counts of the window.
+   * @param key The key.
+   * @return The smallest sum of the counters of the key over the rows.
+   */
+  private long estimate(Window window, long key) {
+    long oldest = Math.floorDiv(now, window.bucketMillis) - window.bucketNumbers.length;
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < DEPTH; row++) {
+      int column = row * WIDTH + index(key, row);
+      long sum = 0;
+      for (int bucket = 0; bucket < window.bucketNumbers.length; bucket++) {
+        if (window.bucketNumbers[bucket] > oldest) {
+          sum += window.sketches[bucket][column];
+        }
+      }
+      estimate = Math.min(estimate, sum);
+    }
+    return estimate;
+  }
+
+  /**
+   * Get the counter of a key in a row.
+   *
+   * @param key The key.
+   * @param row The row, which chooses the hash.
+   * @return The index of the counter in the row.
+   */
+  private static int index(long key, int row) {
+    long hash = (key + row * 0x632BE59BD9B4E019L) * 0x9E3779B97F4A7C15L;
+    hash ^= hash >>> 29;
+    hash *= 0xBF58476D1CE4E5B9L;
+    hash ^= hash >>> 32;
+    return (int) (hash & (WIDTH - 1));
+  }
+}
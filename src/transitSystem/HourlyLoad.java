@@ -0,0 +1,203 @@
+package transitSystem;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The number of cards that entered and exited every station in every hour of one day. The counts
+ * are kept in two int arrays with 24 slots for every station id.
+ */
+final class HourlyLoad {
+
+  /** The number of hours in a day. */
+  static final int HOURS = 24;
+
+  /** The kind of a record that counts entries. */
+  static final byte ENTER = 0;
+
+  /** The kind of a record that counts exits. */
+  static final byte EXIT = 1;
+
+  /** The entries of station id s in hour h at index s * HOURS + h. */
+  private int[] entries;
+
+  /** The exits of station id s in hour h at index s * HOURS + h. */
+  private int[] exits;
+
+  /**
+   * Create the counts of a day with room for some stations.
+   *
+   * @param stationCount The number of stations.
+   */
+  HourlyLoad(int stationCount) {
+    entries = new int[Math.max(stationCount, 1) * HOURS];
+    exits = new int[entries.length];
+  }
+
+  /**
+   * Add entries or exits of a station in an hour.
+   *
+   * @param stationId The id of the station.
+   * @param hour The hour of the day, from 0 to 23.
+   * @param kind ENTER or EXIT.
+   * @param count The number of entries or exits.
+   */
+  void add(int stationId, int hour, byte kind, int count) {
+    int index = stationId * HOURS + hour;
+    if (index >= entries.length) {
+      int length = Math.max(entries.length * 2, (stationId + 1) * HOURS);
+      entries = Arrays.copyOf(entries, length);
+      exits = Arrays.copyOf(exits, length);
+    }
+    if (kind == ENTER) {
+      entries[index] += count;
+    } else {
+      exits[index] += count;
+    }
+  }
+
+  /**
+   * Get the entries of a station in every hour.
+   *
+   * @param stationId The id of the station.
+   * @return The number of entries of every hour from 0 to 23.
+   */
+  int[] entries(int stationId) {
+    return curve(entries, stationId);
+  }
+
+  /**
+   * Get the exits of a station in every hour.
+   *
+   * @param stationId The id of the station.
+   * @return The number of exits of every hour from 0 to 23.
+   */
+  int[] exits(int stationId) {
+    return curve(exits, stationId);
+  }
+
+  /**
+   * Get the entries and exits of a station in every hour.
+   *
+   * @param stationId The id of the station.
+   * @return The number of entries and exits of every hour from 0 to 23.
+   */
+  int[] load(int stationId) {
+    int[] load = entries(stationId);
+    int[] out = exits(stationId);
+    for (int hour = 0; hour < HOURS; hour++) {
+      load[hour] += out[hour];
+    }
+    return load;
+  }
+
+  /**
+   * Get the hour with the most entries and exits of a station.
+   *
+   * @param stationId The id of the station.
+   * @return The earliest busiest hour, or -1 if there is no entry or exit on the day.
+   */
+  int peakHour(int stationId) {
+    int[] load = load(stationId);
+    int peak = -1;
+    for (int hour = 0; hour < HOURS; hour++) {
+      if (load[hour] > 0 && (peak < 0 || load[hour] > load[peak])) {
+        peak = hour;
+      }
+    }
+    return peak;
+  }
+
+  /**
+   * Copy the counts of the day, so that they can be read while the day is still tapped.
+   *
+   * @return The copy.
+   */
+  HourlyLoad copy() {
+    HourlyLoad copy = new HourlyLoad(0);
+    copy.entries = entries.clone();
+    copy.exits = exits.clone();
+    return copy;
+  }
+
+  /**
+   * Write every hour of every station that has entries or exits as a record.
+   *
+   * @param out The stream to write to.
+   * @throws IOException If the stream cannot be written.
+   */
+  void writeTo(DataOutputStream out) throws IOException {
+    for (int index = 0; index < entries.length; index++) {
+      if (entries[index] != 0) {
+        writeRecord(out, index / HOURS, index % HOURS, ENTER, entries[index]);
+      }
+      if (exits[index] != 0) {
+        writeRecord(out, index / HOURS, index % HOURS, EXIT, exits[index]);
+      }
+    }
+  }
+
+  /**
+   * Write one record: station id, hour, kind and count.
+   *
+   * @param out The stream to write to.
+   * @param stationId The id of the station.
+   * @param hour The hour of the day.
+   * @param kind ENTER or EXIT.
+   * @param count The number of entries or exits.
+   * @throws IOException If the stream cannot be written.
+   */
+  static void writeRecord(DataOutputStream out, int stationId, int hour, byte kind, int count)
+      throws IOException {
+    out.writeInt(stationId);
+    out.writeByte(hour);
+    out.writeByte(kind);
+    out.writeInt(count);
+  }
+
+  /**
+   * Read records written by writeTo or writeRecord until the end of a stream. A record that was cut
+   * short at the end of the stream is ignored.
+   *
+   * @param in The stream to read from.
+   * @param stationCount The number of stations.
+   * @return The counts of the records.
+   * @throws IOException If the stream cannot be read.
+   */
+  static HourlyLoad readFrom(DataInputStream in, int stationCount) throws IOException {
+    HourlyLoad load = new HourlyLoad(stationCount);
+    try {
+      while (true) {
+        int stationId = in.readInt();
+        int hour = in.readUnsignedByte();
+        byte kind = in.readByte();
+        int count = in.readInt();
+        if (stationId >= 0 && hour < HOURS) {
+          load.add(stationId, hour, kind, count);
+        }
+      }
+    } catch (EOFException ex) {
+      // the end of the stream, or the last record was cut short when it was appended
+      return load;
+    }
+  }
+
+  /**
+   * Copy the 24 hours of a station.
+   *
+   * @param counts The entries or the exits.
+   * @param stationId The id of the station.
+   * @return The counts of every hour, zeros if the station has no counts.
+   */
+  private static int[] curve(int[] counts, int stationId) {
+    int[] curve = new int[HOURS];
+    int start = stationId * HOURS;
+    if (stationId >= 0 && start < counts.length) {
+      System.arraycopy(counts, start, curve, 0, HOURS);
+    }
+    return curve;
+  }
+}
@@ -0,0 +1,126 @@
+package transitSystem;
+
+import java.util.Arrays;
+
+/**
+ * An approximate count of the distinct card ids that were added, in 4 KB however many cards there
+ * are. Every card id is hashed to one of 4096 registers, which keeps the largest number of leading
+ * zeros seen in the rest of the hash. The standard error of the count is about 1.6%. Two sketches
+ * are merged by taking the larger value of every register, so the sketches of several stations or
+ * days give the count of the distinct cards of all of them.
+ */
+final class HyperLogLog {
+
+  /** The number of bits of the hash that choose the register. */
+  static final int PRECISION = 12;
+
+  /** The number of registers. */
+  static final int REGISTERS = 1 << PRECISION;
+
+  /** The largest number of leading zeros plus one of every register. */
+  private final byte[] registers = new byte[REGISTERS];
+
+  /**
+   * Add a card id.
+   *
+   * @param cardId The id of the card.
+   * @return True if the sketch changed, false if adding the card id again would not change it.
+   */
+  boolean add(int cardId) {
+    long hash = hash(cardId);
+    int index = (int) (hash >>> (64 - PRECISION));
+    // the bit after the index bits stops the count if the rest of the hash is all zeros
+    long rest = (hash << PRECISION) | (1L << (PRECISION - 1));
+    byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+    if (registers[index] >= rank) {
+      return false;
+    }
+    registers[index] = rank;
+    return true;
+  }
+
+  /**
+   * Add all the card ids of another sketch.
+   *
+   * @param other The other sketch.
+   */
+  void merge(HyperLogLog other) {
+    for (int i = 0; i < REGISTERS; i++) {
+      if (other.registers[i] > registers[i]) {
+        registers[i] = other.registers[i];
+      }
+    }
+  }
+
+  /**
+   * Add all the card ids of a sketch that was written as its registers.
+   *
+   * @param otherRegisters The registers of the other sketch.
+   */
+  void merge(byte[] otherRegisters) {
+    for (int i = 0; i < REGISTERS; i++) {
+      if (otherRegisters[i] > registers[i]) {
+        registers[i] = otherRegisters[i];
+      }
+    }
+  }
+
+  /**
+   * Get the approximate number of distinct card ids that were added.
+   *
+   * @return The count.
+   */
+  long count() {
+    double sum = 0;
+    int zeros = 0;
+    for (byte register : registers) {
+      sum += 1.0 / (1L << register);
+      if (register == 0) {
+        zeros++;
+      }
+    }
+    double alpha = 0.7213 / (1 + 1.079 / REGISTERS);
+    double estimate = alpha * REGISTERS * REGISTERS / sum;
+    if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+      // few cards leave many registers empty, which linear counting estimates better
+      estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+    }
+    return Math.round(estimate);
+  }
+
+  /**
+   * Check if no card id was added.
+   *
+   * @return True if every register is 0.
+   */
+  boolean isEmpty() {
+    for (byte register : registers) {
+      if (register != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Get a copy of the registers, to write the sketch.
+   *
+   * @return The registers.
+   */
+  byte[] toBytes() {
+    return Arrays.copyOf(registers, REGISTERS);
+  }
+
+  /**
+   * Spread the bits of a card id over a 64-bit hash, so that close ids fall in unrelated registers.
+   *
+   * @param cardId The id of the card.
+   * @return The hash.
+   */
+  private static long hash(int cardId) {
+    long hash = cardId * 0x9E3779B97F4A7C15L;
+    hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+    hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+    return hash ^ (hash >>> 33);
+  }
+}
@@ -1,27 +1,45 @@
 package transitSystem;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 import java.util.logging.FileHandler;
 import java.util.logging.Formatter;
 import java.util.logging.LogRecord;
 
-/** The logging class that keep track all the activities of the system. */
+/**
+ * The logging class that keep track all the activities of the system. The messages are put into a
+ * bounded ring buffer and written to the file by a single writer thread, so the caller never waits
+ * for the disk. A message is only built when its level is enabled; the level can be set with the
+ * system property "transitSystem.logLevel", e.g. -DtransitSystem.logLevel=INFO.
+ */
 final class Logging {
 
+  /** The number of messages that the ring buffer holds. */
+  private static final int BUFFER_CAPACITY = 8192;
+
   /** The logger of the class. */
   private static Logger log;
 
   /** The only logging object that write the log. */
   private static Logging instance = new Logging();
 
+  /** The messages that are not written yet. */
+  private final ArrayBlockingQueue<LogRecord> buffer = new ArrayBlockingQueue<>(BUFFER_CAPACITY);
+
+  /** The number of messages dropped because the buffer was full. */
+  private final AtomicLong dropped = new AtomicLong();
+
   /** Create a log to write all the information. */
   private Logging() {
     try {
       // get the logger transitSystem.
       log = Logger.getLogger("transitSystem");
-      log.setLevel(Level.ALL);
+      log.setLevel(Level.parse(System.getProperty("transitSystem.logLevel", "ALL")));
       // create a new file handler.
       FileHandler fileHandler;
       fileHandler = new FileHandler("./log.txt", true);
@@ -38,6 +56,10 @@ final class Logging {
     } catch (IOException e) {
       e.printStackTrace();
     }
+    Thread writer = new Thread(this::writeLoop, "log-writer");
+    writer.setDaemon(true);
+    writer.start();
+    Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "log-flush"));
   }
 
   /**
@@ -47,6 +69,16 @@ final class Logging {
     return instance;
   }
 
+  /**
+   * Check if the messages of a level are written.
+   *
+   * @param level The level of the message.
+   * @return True if the messages of the level are written.
+   */
+  boolean isLoggable(Level level) {
+    return log.isLoggable(level);
+  }
+
   /**
    * Log the message to the file.
    *
@@ -54,7 +86,38 @@ final class Logging {
    * @param msg The message itself.
    */
   void log(Level level, String msg) {
-    log.log(level, msg);
+    if (log.isLoggable(level)) {
+      enqueue(new LogRecord(level, msg));
+    }
+  }
+
+  /**
+   * Log the message to the file. The message is only built if the level is enabled; it is built
+   * by the caller, so it may read objects that are changed later.
+   *
+   * @param level The level of the message.
+   * @param msg Builds the message itself.
+   */
+  void log(Level level, Supplier<String> msg) {
+    if (log.isLoggable(level)) {
+      enqueue(new LogRecord(level, msg.get()));
+    }
+  }
+
+  /**
+   * Log the message to the file. Every "{}" in the pattern is replaced by the next parameter when
+   * the message is written, so the parameters should not be changed after this call.
+   *
+   * @param level The level of the message.
+   * @param pattern The message with a "{}" for each parameter.
+   * @param params The parameters of the message.
+   */
+  void log(Level level, String pattern, Object... params) {
+    if (log.isLoggable(level)) {
+      LogRecord record = new LogRecord(level, pattern);
+      record.setParameters(params);
+      enqueue(record);
+    }
   }
 
   /**
@@ -65,6 +128,101 @@ final class Logging {
    * @param e The exception.
    */
   void log(Level level, String msg, Throwable e) {
-    log.log(level, msg, e);
+    if (log.isLoggable(level)) {
+      LogRecord record = new LogRecord(level, msg);
+      record.setThrown(e);
+      enqueue(record);
+    }
+  }
+
+  /**
+   * Put a message into the ring buffer. A warning or a more severe message waits for space, any
+   * other message is dropped and counted if the buffer is full.
+   *
+   * @param record The message.
+   */
+  private void enqueue(LogRecord record) {
+    record.setLoggerName(log.getName());
+    if (buffer.offer(record)) {
+      return;
+    }
+    if (record.getLevel().intValue() >= Level.WARNING.intValue()) {
+      try {
+        buffer.put(record);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    } else {
+      dropped.incrementAndGet();
+    }
+  }
+
+  /** Write the messages in the ring buffer to the file, run by the writer thread. */
+  private void writeLoop() {
+    while (true) {
+      try {
+        write(buffer.take());
+        reportDropped();
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Write one message to the file.
+   *
+   * @param record The message.
+   */
+  private void write(LogRecord record) {
+    try {
+      // build the message of the parameters here instead of in the caller
+      if (record.getParameters() != null) {
+        record.setMessage(formatMessage(record.getMessage(), record.getParameters()));
+        record.setParameters(null);
+      }
+      log.log(record);
+    } catch (RuntimeException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /** Write a warning with the number of messages dropped since the last warning. */
+  private void reportDropped() {
+    long count = dropped.getAndSet(0);
+    if (count > 0) {
+      write(new LogRecord(Level.WARNING, "The log buffer was full, dropped messages: " + count));
+    }
+  }
+
+  /** Write the messages that are still in the ring buffer, run when the program exits. */
+  private void flush() {
+    ArrayList<LogRecord> rest = new ArrayList<>();
+    buffer.drainTo(rest);
+    for (LogRecord record : rest) {
+      write(record);
+    }
+    reportDropped();
+  }
+
+  /**
+   * Replace every "{}" in a pattern with the next parameter.
+   *
+   * @param pattern The message with a "{}" for each parameter.
+   * @param params The parameters.
+   * @return The message.
+   */
+  private static String formatMessage(String pattern, Object[] params) {
+    StringBuilder message = new StringBuilder(pattern.length() + 16 * params.length);
+    int start = 0;
+    for (Object param : params) {
+      int index = pattern.indexOf("{}", start);
+      if (index < 0) {
+        break;
+      }
+      message.append(pattern, start, index).append(param);
+      start = index + 2;
+    }
+    return message.append(pattern, start, pattern.length()).toString();
   }
 }
@@ -0,0 +1,164 @@
+package transitSystem;
+
+/** A snapshot of the progress and the totals of the background maintenance of the records. */
+public final class MaintenanceStatus {
+
+  /** The name of the task that is running, null if the worker is idle. */
+  private final String task;
+
+  /** The number of steps of the running task that are done. */
+  private final int stepsDone;
+
+  /** The number of steps of the running task that are known so far. */
+  private final int stepsTotal;
+
+  /** The number of tasks waiting behind the running one. */
+  private final int tasksPending;
+
+  /** The number of tasks finished since the system started. */
+  private final long tasksDone;
+
+  /** The number of records deleted since the system started. */
+  private final long recordsRemoved;
+
+  /** The number of bytes written since the system started. */
+  private final long bytesWritten;
+
+  /** The time in milliseconds spent waiting to stay under the write budget. */
+  private final long throttledMillis;
+
+  /**
+   * Create a snapshot.
+   *
+   * @param task The name of the running task, null if the worker is idle.
+   * @param stepsDone The number of steps of the running task that are done.
+   * @param stepsTotal The number of steps of the running task that are known so far.
+   * @param tasksPending The number of tasks waiting behind the running one.
+   * @param tasksDone The number of tasks finished.
+   * @param recordsRemoved The number of records deleted.
+   * @param bytesWritten The number of bytes written.
+   * @param throttledMillis The time in milliseconds spent waiting for the write budget.
+   */
+  MaintenanceStatus(
+      String task,
+      int stepsDone,
+      int stepsTotal,
+      int tasksPending,
+      long tasksDone,
+      long recordsRemoved,
+      long bytesWritten,
+      long throttledMillis) {
+    this.task = task;
+    this.stepsDone = stepsDone;
+    this.stepsTotal = stepsTotal;
+    this.tasksPending = tasksPending;
+    this.tasksDone = tasksDone;
+    this.recordsRemoved = recordsRemoved;
+    this.bytesWritten = bytesWritten;
+    this.throttledMillis = throttledMillis;
+  }
+
+  /**
+   * Check if a task is running or waiting.
+   *
+   * @return True if the worker is busy.
+   */
+  public boolean isRunning() {
+    return task != null || tasksPending > 0;
+  }
+
+  /**
+   * Get the name of the running task.
+   *
+   * @return The name, null if the worker is idle.
+   */
+  public String getTask() {
+    return task;
+  }
+
+  /**
+   * Get the number of steps of the running task that are done.
+   *
+   * @return The number of steps.
+   */
+  public int getStepsDone() {
+    return stepsDone;
+  }
+
+  /**
+   * Get the number of steps of the running task that are known so far. A step that walks the
+   * cards adds a step for every batch of them when it runs, so the total can grow.
+   *
+   * @return The number of steps.
+   */
+  public int getStepsTotal() {
+    return stepsTotal;
+  }
+
+  /**
+   * Get the number of tasks waiting behind the running one.
+   *
+   * @return The number of tasks.
+   */
+  public int getTasksPending() {
+    return tasksPending;
+  }
+
+  /**
+   * Get the number of tasks finished since the system started.
+   *
+   * @return The number of tasks.
+   */
+  public long getTasksDone() {
+    return tasksDone;
+  }
+
+  /**
+   * Get the number of expired trips and daily records deleted since the system started.
+   *
+   * @return The number of records.
+   */
+  public long getRecordsRemoved() {
+    return recordsRemoved;
+  }
+
+  /**
+   * Get the number of bytes of data files written since the system started.
+   *
+   * @return The number of bytes.
+   */
+  public long getBytesWritten() {
+    return bytesWritten;
+  }
+
+  /**
+   * Get the time spent waiting to keep the writes under the budget.
+   *
+   * @return The time in milliseconds.
+   */
+  public long getThrottledMillis() {
+    return throttledMillis;
+  }
+
+  @Override
+  public String toString() {
+    String state =
+        (task == null)
+            ? "Maintenance: idle"
+            : "Maintenance: " + task + " step " + stepsDone + " of " + stepsTotal;
+    if (tasksPending > 0) {
+      state += ", " + tasksPending + " waiting";
+    }
+    return state
+        + System.getProperty("line.separator")
+        + "Tasks done: "
+        + tasksDone
+        + ", records removed: "
+        + recordsRemoved
+        + ", bytes written: "
+        + bytesWritten
+        + ", throttled: "
+        + throttledMillis
+        + " ms";
+  }
+}
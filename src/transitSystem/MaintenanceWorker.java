@@ -0,0 +1,293 @@
+package transitSystem;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.logging.Level;
+
+/**
+ * Runs the maintenance of the records, such as compacting the partitions and purging the expired
+ * trips, on a background thread so that closing the system does not wait for it. A task is a list
+ * of small steps; a step that walks the cards or the accounts is split into batches, so no step
+ * holds a manager for long. The worker paces the steps so that the bytes written by a task stay
+ * under a budget per second, unless someone is waiting for it to finish. The tasks run one at a
+ * time in the order they are submitted.
+ */
+final class MaintenanceWorker {
+
+  /** The number of cards or accounts walked by one step. */
+  static final int BATCH_SIZE = 1024;
+
+  /** The bytes a task may write per second when no budget is given. */
+  static final long DEFAULT_BYTES_PER_SECOND = 4L * 1024 * 1024;
+
+  /** One small piece of the work of a task. */
+  interface Step {
+
+    /**
+     * Run the step on the worker thread.
+     *
+     * @param task The task of the step, which counts its work and takes more steps.
+     */
+    void run(Task task);
+  }
+
+  /** A named list of steps and the work they did. */
+  final class Task {
+
+    /** The name of the task, e.g. "close of 2019-11-30". */
+    private final String name;
+
+    /** The steps that have not run. */
+    private final ArrayDeque<Step> steps;
+
+    /** The number of steps that are done. */
+    private int done;
+
+    /** The number of steps that are done or waiting. */
+    private int total;
+
+    /** The number of records deleted by the task. */
+    private long removed;
+
+    /** The number of bytes written by the task. */
+    private long written;
+
+    /**
+     * Create a task.
+     *
+     * @param name The name of the task.
+     * @param steps The steps in the order they run.
+     */
+    private Task(String name, List<Step> steps) {
+      this.name = name;
+      this.steps = new ArrayDeque<>(steps);
+      this.total = steps.size();
+    }
+
+    /**
+     * Count records deleted by a step.
+     *
+     * @param records The number of records.
+     */
+    void removed(long records) {
+      removed += records;
+      recordsRemoved.addAndGet(records);
+    }
+
+    /**
+     * Count bytes written by a step. They are paid for by waiting before the next step.
+     *
+     * @param bytes The number of bytes.
+     */
+    void wrote(long bytes) {
+      if (bytes > 0) {
+        written += bytes;
+        bytesWritten.addAndGet(bytes);
+      }
+    }
+
+    /**
+     * Add steps that run right after the current step, before the rest of the task.
+     *
+     * @param more The steps in the order they run.
+     */
+    void next(List<Step> more) {
+      for (int i = more.size() - 1; i >= 0; i--) {
+        steps.addFirst(more.get(i));
+      }
+      synchronized (MaintenanceWorker.this) {
+        total += more.size();
+      }
+    }
+  }
+
+  /** The running task first, then the tasks waiting behind it. */
+  private final ArrayDeque<Task> queue = new ArrayDeque<>();
+
+  /** The bytes a task may write per second. */
+  private final long bytesPerSecond;
+
+  /** The number of callers waiting for the queue to be empty, who turn off the pacing. */
+  private int waiters;
+
+  /** The number of tasks finished. */
+  private final AtomicLong tasksDone = new AtomicLong();
+
+  /** The number of records deleted by all the tasks. */
+  private final AtomicLong recordsRemoved = new AtomicLong();
+
+  /** The number of bytes written by all the tasks. */
+  private final AtomicLong bytesWritten = new AtomicLong();
+
+  /** The time in nanoseconds spent waiting for the budget. */
+  private final AtomicLong throttledNanos = new AtomicLong();
+
+  /**
+   * Create a worker with its own daemon thread. The tasks that are waiting when the program exits
+   * are finished first, without pacing.
+   *
+   * @param name The name of the thread.
+   * @param bytesPerSecond The bytes a task may write per second, more than 0.
+   */
+  MaintenanceWorker(String name, long bytesPerSecond) {
+    this.bytesPerSecond = bytesPerSecond;
+    Thread worker = new Thread(this::runLoop, name);
+    worker.setDaemon(true);
+    worker.start();
+    Runtime.getRuntime().addShutdownHook(new Thread(this::awaitIdle, name + "-finish"));
+  }
+
+  /**
+   * Add a task after the tasks that are waiting.
+   *
+   * @param name The name of the task.
+   * @param steps The steps in the order they run.
+   */
+  synchronized void submit(String name, List<Step> steps) {
+    queue.add(new Task(name, steps));
+    notifyAll();
+    Logging.getLogger()
+        .log(Level.FINE, "Maintenance {} submitted with {} steps", name, steps.size());
+  }
+
+  /**
+   * Wait until every task is finished. The tasks run without pacing while someone waits.
+   */
+  synchronized void awaitIdle() {
+    waiters++;
+    notifyAll();
+    try {
+      while (!queue.isEmpty()) {
+        wait();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      waiters--;
+    }
+  }
+
+  /**
+   * Get the progress of the running task and the totals of all the tasks.
+   *
+   * @return A snapshot of the worker.
+   */
+  synchronized MaintenanceStatus status() {
+    Task running = queue.peek();
+    return new MaintenanceStatus(
+        running == null ? null : running.name,
+        running == null ? 0 : running.done,
+        running == null ? 0 : running.total,
+        Math.max(0, queue.size() - 1),
+        tasksDone.get(),
+        recordsRemoved.get(),
+        bytesWritten.get(),
+        TimeUnit.NANOSECONDS.toMillis(throttledNanos.get()));
+  }
+
+  /**
+   * Create a step that takes the keys of some records when it runs, and adds a step for every
+   * BATCH_SIZE of them. The keys are taken when the step runs rather than when the task is
+   * submitted, so the earlier steps of the task are already done.
+   *
+   * @param keys Gives a copy of the keys, e.g. the ids of the cards.
+   * @param batch Runs on a batch of the keys and gives the number of records deleted.
+   * @param <K> The type of the keys.
+   * @return The step.
+   */
+  static <K> Step inBatches(Supplier<List<K>> keys, ToIntFunction<List<K>> batch) {
+    return task -> {
+      List<K> all = keys.get();
+      ArrayList<Step> batches = new ArrayList<>();
+      for (int from = 0; from < all.size(); from += BATCH_SIZE) {
+        List<K> part = all.subList(from, Math.min(all.size(), from + BATCH_SIZE));
+        batches.add(next -> next.removed(batch.applyAsInt(part)));
+      }
+      task.next(batches);
+    };
+  }
+
+  /** Run the tasks one at a time, run by the worker thread. */
+  private void runLoop() {
+    while (true) {
+      Task task;
+      synchronized (this) {
+        while (queue.isEmpty()) {
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            return;
+          }
+        }
+        task = queue.peek();
+      }
+      run(task);
+      synchronized (this) {
+        queue.poll();
+        tasksDone.incrementAndGet();
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Run the steps of a task. A step that fails is logged and the task goes on with the next one.
+   *
+   * @param task The task.
+   */
+  private void run(Task task) {
+    long start = System.nanoTime();
+    Step step;
+    while ((step = task.steps.poll()) != null) {
+      try {
+        step.run(task);
+      } catch (RuntimeException ex) {
+        Logging.getLogger().log(Level.WARNING, "Maintenance step of " + task.name + " failed", ex);
+      }
+      synchronized (this) {
+        task.done++;
+      }
+      Logging.getLogger()
+          .log(Level.FINE, "Maintenance {}: step {} of {}", task.name, task.done, task.total);
+      pace(task, start);
+    }
+    Logging.getLogger()
+        .log(
+            Level.INFO,
+            "Maintenance {} finished in {} ms: {} steps, {} records removed, {} bytes written",
+            task.name,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+            task.done,
+            task.removed,
+            task.written);
+  }
+
+  /**
+   * Wait until the bytes written by a task fit in the budget of the time since it started, or
+   * until someone waits for the worker.
+   *
+   * @param task The task.
+   * @param start The time in nanoseconds the task started.
+   */
+  private synchronized void pace(Task task, long start) {
+    long budget = (long) (task.written * (double) TimeUnit.SECONDS.toNanos(1) / bytesPerSecond);
+    long due = start + budget;
+    long now = System.nanoTime();
+    while (waiters == 0 && due - now > 0) {
+      try {
+        TimeUnit.NANOSECONDS.timedWait(this, due - now);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      long waited = System.nanoTime() - now;
+      throttledNanos.addAndGet(waited);
+      now += waited;
+    }
+  }
+}
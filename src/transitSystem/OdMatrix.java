@@ -0,0 +1,205 @@
+package transitSystem;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+
+/**
+ * The number of trips between every pair of stations on one day, keyed by the ids of the origin
+ * and the destination. Only the pairs that have trips are kept, in an open-addressing hash table
+ * of primitive arrays.
+ */
+final class OdMatrix {
+
+  /** The number of slots of a new table. */
+  private static final int INITIAL_CAPACITY = 64;
+
+  /** The origin id in the high half and the destination id in the low half of every pair. */
+  private long[] keys = new long[INITIAL_CAPACITY];
+
+  /** The number of trips of every pair, 0 for an empty slot. */
+  private int[] counts = new int[INITIAL_CAPACITY];
+
+  /** The number of pairs. */
+  private int size;
+
+  /**
+   * Add trips between two stations.
+   *
+   * @param origin The id of the station where the trips started.
+   * @param destination The id of the station where the trips ended.
+   * @param trips The number of trips, more than 0.
+   */
+  void add(int origin, int destination, int trips) {
+    if ((size + 1) * 2 > keys.length) {
+      grow();
+    }
+    long key = key(origin, destination);
+    int slot = find(keys, counts, key);
+    if (counts[slot] == 0) {
+      keys[slot] = key;
+      size++;
+    }
+    counts[slot] += trips;
+  }
+
+  /**
+   * Get the number of trips between two stations.
+   *
+   * @param origin The id of the station where the trips started.
+   * @param destination The id of the station where the trips ended.
+   * @return The number of trips.
+   */
+  int get(int origin, int destination) {
+    return counts[find(keys, counts, key(origin, destination))];
+  }
+
+  /**
+   * Get the number of pairs of stations that have trips.
+   *
+   * @return The number of pairs.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Add all the trips of another matrix to this one.
+   *
+   * @param other The other matrix.
+   */
+  void addAll(OdMatrix other) {
+    for (int slot = 0; slot < other.keys.length; slot++) {
+      if (other.counts[slot] > 0) {
+        long key = other.keys[slot];
+        add((int) (key >>> 32), (int) key, other.counts[slot]);
+      }
+    }
+  }
+
+  /**
+   * Get the pairs with the most trips.
+   *
+   * @param k The number of pairs.
+   * @return {origin id, destination id, trips} of at most k pairs, the most trips first.
+   */
+  ArrayList<int[]> top(int k) {
+    // keep the k largest pairs in a heap with the smallest of them on top
+    PriorityQueue<int[]> heap = new PriorityQueue<>((a, b) -> Integer.compare(a[2], b[2]));
+    for (int slot = 0; slot < keys.length && k > 0; slot++) {
+      if (counts[slot] > 0) {
+        if (heap.size() < k) {
+          heap.add(new int[] {(int) (keys[slot] >>> 32), (int) keys[slot], counts[slot]});
+        } else if (counts[slot] > heap.peek()[2]) {
+          heap.poll();
+          heap.add(new int[] {(int) (keys[slot] >>> 32), (int) keys[slot], counts[slot]});
+        }
+      }
+    }
+    ArrayList<int[]> top = new ArrayList<>(heap);
+    top.sort((a, b) -> Integer.compare(b[2], a[2]));
+    return top;
+  }
+
+  /**
+   * Write every pair as {origin, destination, trips}.
+   *
+   * @param out The stream to write to.
+   * @throws IOException If the stream cannot be written.
+   */
+  void writeTo(DataOutputStream out) throws IOException {
+    for (int slot = 0; slot < keys.length; slot++) {
+      if (counts[slot] > 0) {
+        writePair(out, (int) (keys[slot] >>> 32), (int) keys[slot], counts[slot]);
+      }
+    }
+  }
+
+  /**
+   * Write one pair.
+   *
+   * @param out The stream to write to.
+   * @param origin The id of the station where the trips started.
+   * @param destination The id of the station where the trips ended.
+   * @param trips The number of trips.
+   * @throws IOException If the stream cannot be written.
+   */
+  static void writePair(DataOutputStream out, int origin, int destination, int trips)
+      throws IOException {
+    out.writeInt(origin);
+    out.writeInt(destination);
+    out.writeInt(trips);
+  }
+
+  /**
+   * Read pairs written by writeTo or writePair until the end of a stream. A pair that appears more
+   * than once is added up, and a pair that was cut short at the end of the stream is ignored.
+   *
+   * @param in The stream to read from.
+   * @return The matrix of the pairs.
+   * @throws IOException If the stream cannot be read.
+   */
+  static OdMatrix readFrom(DataInputStream in) throws IOException {
+    OdMatrix matrix = new OdMatrix();
+    try {
+      while (true) {
+        int origin = in.readInt();
+        int destination = in.readInt();
+        int trips = in.readInt();
+        if (trips > 0) {
+          matrix.add(origin, destination, trips);
+        }
+      }
+    } catch (EOFException ex) {
+      // the end of the stream, or the last pair was cut short when it was appended
+      return matrix;
+    }
+  }
+
+  /** Double the number of slots. */
+  private void grow() {
+    long[] newKeys = new long[keys.length * 2];
+    int[] newCounts = new int[counts.length * 2];
+    for (int slot = 0; slot < keys.length; slot++) {
+      if (counts[slot] > 0) {
+        int newSlot = find(newKeys, newCounts, keys[slot]);
+        newKeys[newSlot] = keys[slot];
+        newCounts[newSlot] = counts[slot];
+      }
+    }
+    keys = newKeys;
+    counts = newCounts;
+  }
+
+  /**
+   * Find the slot of a pair, or the empty slot where it goes.
+   *
+   * @param keys The keys of the table.
+   * @param counts The counts of the table.
+   * @param key The pair.
+   * @return The slot.
+   */
+  private static int find(long[] keys, int[] counts, long key) {
+    int mask = keys.length - 1;
+    long hash = key * 0x9E3779B97F4A7C15L;
+    int slot = (int) (hash ^ (hash >>> 32)) & mask;
+    while (counts[slot] != 0 && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  /**
+   * Get the key of a pair.
+   *
+   * @param origin The id of the origin.
+   * @param destination The id of the destination.
+   * @return The key.
+   */
+  static long key(int origin, int destination) {
+    return ((long) origin << 32) | (destination & 0xFFFFFFFFL);
+  }
+}
@@ -0,0 +1,44 @@
+package transitSystem;
+
+import java.io.File;
+import java.io.InvalidClassException;
+import java.util.logging.Level;
+
+/**
+ * Handles a data file that cannot be read any more, such as one saved by a version whose classes
+ * have no fixed serialVersionUID. The files of the first version are converted when they are read,
+ * see Trip, TrafficCard and CardHolderAccount. A file that cannot be converted is renamed instead
+ * of being overwritten by the next save, so its records are not lost.
+ */
+final class OldDataFile {
+
+  /** The suffix added to the name of a file that cannot be read. */
+  static final String SUFFIX = ".old";
+
+  /** This class only contains static helpers. */
+  private OldDataFile() {}
+
+  /**
+   * Log that a data file has an older format and rename it to its name plus SUFFIX.
+   *
+   * @param name The name of the file, e.g. "data-Cards.out".
+   * @param ex The exception thrown when the file was read.
+   */
+  static void setAside(String name, InvalidClassException ex) {
+    File file = new File(name);
+    File old = new File(name + SUFFIX);
+    if ((old.exists() && !old.delete()) || !file.renameTo(old)) {
+      Logging.getLogger()
+          .log(Level.SEVERE, name + " has an older format and cannot be read or renamed", ex);
+      return;
+    }
+    Logging.getLogger()
+        .log(
+            Level.SEVERE,
+            name
+                + " has an older format and cannot be read, it is kept as "
+                + old
+                + " and the system starts without its records",
+            ex);
+  }
+}
@@ -0,0 +1,130 @@
+package transitSystem;
+
+/**
+ * The report of the transit system over a range of days, such as a week or a month: the stations
+ * travelled, the costs and the deductions of all the days in the range.
+ */
+public class PeriodReport {
+
+  /** The first date of the range, in the format "yyyy-MM-dd". */
+  private final String fromDate;
+
+  /** The last date of the range, in the format "yyyy-MM-dd". */
+  private final String toDate;
+
+  /** The number of stations and stops passed in the trips finished in the range. */
+  private final long stationsPassed;
+
+  /** The money spent by all the accounts in the range. */
+  private final double accountCost;
+
+  /** The money deducted from all the cards in the range. */
+  private final double cardRevenue;
+
+  /** The number of deductions from all the cards in the range. */
+  private final long cardTimes;
+
+  /**
+   * Create a report.
+   *
+   * @param fromDate The first date of the range.
+   * @param toDate The last date of the range.
+   * @param stationsPassed The number of stations and stops passed in the range.
+   * @param accountCost The money spent by all the accounts in the range.
+   * @param cardRevenue The money deducted from all the cards in the range.
+   * @param cardTimes The number of deductions in the range.
+   */
+  PeriodReport(
+      String fromDate,
+      String toDate,
+      long stationsPassed,
+      double accountCost,
+      double cardRevenue,
+      long cardTimes) {
+    this.fromDate = fromDate;
+    this.toDate = toDate;
+    this.stationsPassed = stationsPassed;
+    this.accountCost = accountCost;
+    this.cardRevenue = cardRevenue;
+    this.cardTimes = cardTimes;
+  }
+
+  /**
+   * Get the first date of the range.
+   *
+   * @return The date in the format "yyyy-MM-dd".
+   */
+  public String getFromDate() {
+    return fromDate;
+  }
+
+  /**
+   * Get the last date of the range.
+   *
+   * @return The date in the format "yyyy-MM-dd".
+   */
+  public String getToDate() {
+    return toDate;
+  }
+
+  /**
+   * Get the number of stations and stops passed in the trips finished in the range.
+   *
+   * @return The number of stations.
+   */
+  public long getStationsPassed() {
+    return stationsPassed;
+  }
+
+  /**
+   * Get the money spent by all the accounts in the range.
+   *
+   * @return The account cost.
+   */
+  public double getAccountCost() {
+    return accountCost;
+  }
+
+  /**
+   * Get the money deducted from all the cards in the range.
+   *
+   * @return The card revenue.
+   */
+  public double getCardRevenue() {
+    return cardRevenue;
+  }
+
+  /**
+   * Get the number of deductions from all the cards in the range.
+   *
+   * @return The number of deductions.
+   */
+  public long getCardTimes() {
+    return cardTimes;
+  }
+
+  /**
+   * Get the string representation of the report, as shown to the admin user.
+   *
+   * @return The report.
+   */
+  @Override
+  public String toString() {
+    String lineSeparator = System.getProperty("line.separator");
+    return "You are viewing system report from "
+        + fromDate
+        + " to "
+        + toDate
+        + lineSeparator
+        + String.format("The number of stations/stops that users passed: %d", stationsPassed)
+        + lineSeparator
+        + "The total account cost is: $"
+        + accountCost
+        + lineSeparator
+        + "The card total cost is: $"
+        + cardRevenue
+        + lineSeparator
+        + "The card total deduct times is: "
+        + cardTimes;
+  }
+}
@@ -0,0 +1,96 @@
+package transitSystem;
+
+import java.util.List;
+
+/**
+ * The most recent finished continuous trips of one card, kept as their rendered text in a ring
+ * buffer of CAPACITY slots. A trip is rendered once when the card taps out, and the text of all
+ * the slots is built again only after a tap out, so showing the recent trips of a card does not
+ * walk its trips or render them.
+ */
+final class RecentTrips {
+
+  /** The number of trips kept. */
+  static final int CAPACITY = 3;
+
+  /** The trip of every slot, to tell if a tap out extends the newest trip. */
+  private final ContinuousTrip[] trips = new ContinuousTrip[CAPACITY];
+
+  /** The rendered text of the trip of every slot. */
+  private final String[] summaries = new String[CAPACITY];
+
+  /** The slot of the newest trip. */
+  private int newest = -1;
+
+  /** The number of slots that hold a trip. */
+  private int size;
+
+  /** The text of all the trips, null if it must be built again. */
+  private String rendered;
+
+  /**
+   * Find the most recent finished trips of a card.
+   *
+   * @param cardTrips The trips of the card, in the order they started.
+   * @return The recent trips of the card.
+   */
+  static RecentTrips of(List<ContinuousTrip> cardTrips) {
+    RecentTrips recent = new RecentTrips();
+    int found = 0;
+    int first = cardTrips.size();
+    // walk back only until CAPACITY finished trips are found
+    for (int i = cardTrips.size() - 1; i >= 0 && found < CAPACITY; i--) {
+      if (cardTrips.get(i).isFinished()) {
+        found++;
+        first = i;
+      }
+    }
+    for (int i = first; i < cardTrips.size(); i++) {
+      if (cardTrips.get(i).isFinished()) {
+        recent.record(cardTrips.get(i));
+      }
+    }
+    return recent;
+  }
+
+  /**
+   * Record a trip that the card just tapped out of. If it is the newest trip, which a transfer
+   * extends, its text is replaced; otherwise it takes the slot of the oldest trip.
+   *
+   * @param trip The trip.
+   */
+  synchronized void record(ContinuousTrip trip) {
+    if (size == 0 || trips[newest] != trip) {
+      newest = (newest + 1) % CAPACITY;
+      size = Math.min(size + 1, CAPACITY);
+    }
+    trips[newest] = trip;
+    summaries[newest] = trip.toString();
+    rendered = null;
+  }
+
+  /**
+   * Get the text of the trips, the newest first, each one numbered.
+   *
+   * @return The text, "no recent trips" if the card has no finished trip.
+   */
+  synchronized String render() {
+    if (rendered == null) {
+      if (size == 0) {
+        rendered = "no recent trips";
+      } else {
+        String newLine = System.getProperty("line.separator");
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+          text.append(newLine)
+              .append(i + 1)
+              .append('.')
+              .append(summaries[Math.floorMod(newest - i, CAPACITY)])
+              .append(newLine);
+        }
+        rendered = text.toString();
+      }
+    }
+    return rendered;
+  }
+}
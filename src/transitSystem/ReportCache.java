@@ -0,0 +1,111 @@
+package transitSystem;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The totals of the daily reports that were already built, by epoch day. The totals of a day are
+ * kept until a deduction or a finished trip of that day changes them, so a closed day is built
+ * once and the current day again only after a tap. The population inside the stations is not kept
+ * here since it changes with every tap of any day.
+ */
+final class ReportCache {
+
+  /** The totals of one day of a report. */
+  static final class Totals {
+
+    /** The number of stations and stops passed in the trips finished on the day. */
+    final int stationsPassed;
+
+    /** The money spent by all the accounts on the day. */
+    final double accountCost;
+
+    /** The money deducted from all the cards on the day. */
+    final double cardRevenue;
+
+    /** The number of deductions from all the cards on the day. */
+    final int cardTimes;
+
+    /** The {times, fare} of every card type on the day. */
+    final Map<String, Double[]> cardTypeInfo;
+
+    /**
+     * Create the totals of a day.
+     *
+     * @param stationsPassed The number of stations and stops passed on the day.
+     * @param accountCost The money spent by all the accounts on the day.
+     * @param cardRevenue The money deducted from all the cards on the day.
+     * @param cardTimes The number of deductions on the day.
+     * @param cardTypeInfo The {times, fare} of every card type on the day.
+     */
+    Totals(
+        int stationsPassed,
+        double accountCost,
+        double cardRevenue,
+        int cardTimes,
+        Map<String, Double[]> cardTypeInfo) {
+      this.stationsPassed = stationsPassed;
+      this.accountCost = accountCost;
+      this.cardRevenue = cardRevenue;
+      this.cardTimes = cardTimes;
+      this.cardTypeInfo = Collections.unmodifiableMap(cardTypeInfo);
+    }
+  }
+
+  /** The totals of the days that were built and did not change since. */
+  private final ConcurrentHashMap<Integer, Totals> totalsByDay = new ConcurrentHashMap<>();
+
+  /** The number of times that any totals were forgotten. */
+  private final AtomicLong changes = new AtomicLong();
+
+  /**
+   * Get the totals of a day.
+   *
+   * @param day The epoch day.
+   * @return The totals, or null if they were not built or changed since.
+   */
+  Totals get(int day) {
+    return totalsByDay.get(day);
+  }
+
+  /**
+   * Get a stamp to take before the totals of a day are built, and to give back to put.
+   *
+   * @return The stamp.
+   */
+  long stamp() {
+    return changes.get();
+  }
+
+  /**
+   * Keep the totals of a day, unless some totals were forgotten while they were built, in which
+   * case they may already be out of date.
+   *
+   * @param day The epoch day.
+   * @param totals The totals of the day.
+   * @param stamp The stamp taken before the totals were built.
+   */
+  void put(int day, Totals totals, long stamp) {
+    if (changes.get() == stamp) {
+      totalsByDay.put(day, totals);
+    }
+  }
+
+  /**
+   * Forget the totals of a day after they changed.
+   *
+   * @param day The epoch day.
+   */
+  void invalidate(int day) {
+    changes.incrementAndGet();
+    totalsByDay.remove(day);
+  }
+
+  /** Forget the totals of every day, as when a card type is added or old records are deleted. */
+  void clear() {
+    changes.incrementAndGet();
+    totalsByDay.clear();
+  }
+}
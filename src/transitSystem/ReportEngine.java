@@ -0,0 +1,112 @@
+package transitSystem;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes the report totals of every day and card type from the cost records of the cards. It is
+ * one pass over the cards that fills all the totals at once, split into partitions of cards that
+ * run in parallel on the common fork/join pool and are merged afterwards. The report of a day then
+ * takes all its card totals from the result in one pass over the card types of that day.
+ */
+final class ReportEngine {
+
+  /** The largest number of cards that one task reads without splitting. */
+  static final int PARTITION_SIZE = 4096;
+
+  /** This class only contains static helpers. */
+  private ReportEngine() {}
+
+  /**
+   * Compute the totals of every day and card type.
+   *
+   * @param cards The cards of the system.
+   * @return The totals of the cards.
+   */
+  static RevenueRollup rollUp(Collection<TransitPass> cards) {
+    ArrayList<TransitPass> list = new ArrayList<>(cards);
+    if (list.size() <= PARTITION_SIZE) {
+      return new RollUpTask(list, 0, list.size()).compute();
+    }
+    return ForkJoinPool.commonPool().invoke(new RollUpTask(list, 0, list.size()));
+  }
+
+  /**
+   * Compute the totals of the report on a day from the totals of every card type of that day, in
+   * one pass that adds up the revenue and the deductions of the card types.
+   *
+   * @param revenue The totals of the cards.
+   * @param day The epoch day.
+   * @param stationsPassed The number of stations and stops passed on the day.
+   * @param accountCost The money spent by all the accounts on the day.
+   * @return The totals of the report.
+   */
+  static ReportCache.Totals totalsOn(
+      RevenueRollup revenue, int day, int stationsPassed, double accountCost) {
+    HashMap<String, Double[]> cardTypeInfo = revenue.info(day);
+    double times = 0;
+    long cents = 0;
+    for (Double[] total : cardTypeInfo.values()) {
+      times += total[RevenueRollup.TIMES];
+      cents += DailyLedger.toCents(total[RevenueRollup.FARE]);
+    }
+    return new ReportCache.Totals(
+        stationsPassed, accountCost, cents / 100.0, (int) Math.round(times), cardTypeInfo);
+  }
+
+  /** Computes the totals of a partition of cards, splitting it in halves if it is too large. */
+  private static class RollUpTask extends RecursiveTask<RevenueRollup> {
+
+    /** The version of the serialized form; a task is never serialized. */
+    private static final long serialVersionUID = 1L;
+
+    /** The cards of the system. */
+    private final ArrayList<TransitPass> cards;
+
+    /** The index of the first card of the partition. */
+    private final int from;
+
+    /** The index after the last card of the partition. */
+    private final int to;
+
+    /**
+     * Create a task of a partition.
+     *
+     * @param cards The cards of the system.
+     * @param from The index of the first card of the partition.
+     * @param to The index after the last card of the partition.
+     */
+    RollUpTask(ArrayList<TransitPass> cards, int from, int to) {
+      this.cards = cards;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected RevenueRollup compute() {
+      if (to - from > PARTITION_SIZE) {
+        int middle = (from + to) >>> 1;
+        RollUpTask left = new RollUpTask(cards, from, middle);
+        left.fork();
+        RevenueRollup rollup = new RollUpTask(cards, middle, to).compute();
+        rollup.merge(left.join());
+        return rollup;
+      }
+      RevenueRollup rollup = new RevenueRollup();
+      for (int i = from; i < to; i++) {
+        TransitPass card = cards.get(i);
+        String cardType = card.getCardType();
+        rollup.addCardType(cardType);
+        DailyLedger costPerDay = card.getCostPerDay();
+        for (int day = 0; day < costPerDay.size(); day++) {
+          rollup.add(
+              costPerDay.dayAt(day), cardType, costPerDay.countAt(day), costPerDay.amountAt(day));
+        }
+      }
+      return rollup;
+    }
+  }
+}
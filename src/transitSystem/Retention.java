@@ -0,0 +1,87 @@
+package transitSystem;
+
+/**
+ * The ten-year retention of the records, kept as the first epoch day that is kept. Moving it at
+ * close is O(1), and the queries treat every day before it as deleted, so the old records do not
+ * have to be deleted right away. The records kept by day partition are deleted a whole month
+ * directory at a time, and the records kept in the cards, accounts and trips are purged once the
+ * oldest of them falls a whole month behind the first kept day.
+ */
+final class Retention {
+
+  /** The first epoch day that is kept. */
+  private volatile int firstKeptDay = Integer.MIN_VALUE;
+
+  /** The oldest epoch day that the cards, accounts and trips may still have records of. */
+  private volatile int oldestStoredDay = Integer.MAX_VALUE;
+
+  /**
+   * Move the first kept day to RETENTION_DAYS before a day. It never moves back.
+   *
+   * @param today The current epoch day.
+   */
+  void advance(int today) {
+    firstKeptDay = Math.max(firstKeptDay, today - EpochDay.RETENTION_DAYS);
+  }
+
+  /**
+   * Get the first epoch day that is kept.
+   *
+   * @return The epoch day, Integer.MIN_VALUE if the retention has not started.
+   */
+  int firstKeptDay() {
+    return firstKeptDay;
+  }
+
+  /**
+   * Get the start of the first day that is kept.
+   *
+   * @return The time in milliseconds, Long.MIN_VALUE if the retention has not started.
+   */
+  long firstKeptMillis() {
+    int day = firstKeptDay;
+    return (day == Integer.MIN_VALUE) ? Long.MIN_VALUE : EpochDay.startMillis(day);
+  }
+
+  /**
+   * Check if the records of a day are deleted.
+   *
+   * @param day The epoch day.
+   * @return True if the day is before the first kept day.
+   */
+  boolean isExpired(int day) {
+    return day < firstKeptDay;
+  }
+
+  /**
+   * Set the oldest day that the cards, accounts and trips have records of, as found when they are
+   * loaded.
+   *
+   * @param day The epoch day, Integer.MAX_VALUE if there is no record.
+   */
+  void setOldestStoredDay(int day) {
+    oldestStoredDay = day;
+  }
+
+  /**
+   * Check if the cards, accounts and trips should be purged, which is when they have records of a
+   * month that is wholly before the first kept day.
+   *
+   * @return True if they should be purged.
+   */
+  boolean needsPurge() {
+    int day = firstKeptDay;
+    return day != Integer.MIN_VALUE
+        && oldestStoredDay < EpochDay.firstDayOf(EpochDay.monthOf(day));
+  }
+
+  /**
+   * Record that the cards, accounts and trips were purged up to a day. The first kept day may
+   * have moved on while they were purged.
+   *
+   * @param day The first epoch day that was kept by the purge.
+   */
+  void purged(int day) {
+    oldestStoredDay = Math.max(oldestStoredDay, day);
+  }
+}
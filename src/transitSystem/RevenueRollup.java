@@ -0,0 +1,146 @@
+package transitSystem;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Keeps the number of deductions and the fares collected on every day for every card type, so a
+ * report of one day does not look at every card. The totals of all the card types are also kept
+ * as DailySeries, so a report of a range of days is O(1) as well. It is updated at every
+ * deduction and rebuilt from the cards by the ReportEngine when the CardManager is loaded.
+ */
+final class RevenueRollup {
+
+  /** The index of the number of deductions in a total. */
+  static final int TIMES = 0;
+
+  /** The index of the fares in a total. */
+  static final int FARE = 1;
+
+  /** The totals of every card type, by epoch day. */
+  private final HashMap<Integer, HashMap<String, double[]>> days = new HashMap<>();
+
+  /** The number of deductions of all the card types on every day. */
+  private final DailySeries taps = new DailySeries();
+
+  /** The fares in cents of all the card types on every day. */
+  private final DailySeries revenueCents = new DailySeries();
+
+  /** The types of all the cards in the system. */
+  private final HashSet<String> cardTypes = new HashSet<>();
+
+  /**
+   * Add a card type that the reports list even on days it is not used.
+   *
+   * @param cardType The type of a card.
+   * @return True if the card type was not added before.
+   */
+  boolean addCardType(String cardType) {
+    return cardTypes.add(cardType);
+  }
+
+  /**
+   * Add deductions of a card type on a day.
+   *
+   * @param day The epoch day of the deductions.
+   * @param cardType The type of the card.
+   * @param times The number of deductions.
+   * @param fare The fares of the deductions.
+   */
+  void add(int day, String cardType, double times, double fare) {
+    cardTypes.add(cardType);
+    double[] total =
+        days.computeIfAbsent(day, key -> new HashMap<>())
+            .computeIfAbsent(cardType, key -> new double[2]);
+    total[TIMES] += times;
+    total[FARE] += fare;
+    taps.add(day, Math.round(times));
+    revenueCents.add(day, DailyLedger.toCents(fare));
+  }
+
+  /**
+   * Add all the totals of another rollup to this one.
+   *
+   * @param other The other rollup.
+   */
+  void merge(RevenueRollup other) {
+    cardTypes.addAll(other.cardTypes);
+    for (Map.Entry<Integer, HashMap<String, double[]>> day : other.days.entrySet()) {
+      for (Map.Entry<String, double[]> total : day.getValue().entrySet()) {
+        add(day.getKey(), total.getKey(), total.getValue()[TIMES], total.getValue()[FARE]);
+      }
+    }
+  }
+
+  /**
+   * Get the fares collected from a day to another day.
+   *
+   * @param fromDay The first epoch day of the range.
+   * @param toDay The last epoch day of the range.
+   * @return The fares of all the card types.
+   */
+  double revenue(int fromDay, int toDay) {
+    return revenueCents.sum(fromDay, toDay) / 100.0;
+  }
+
+  /**
+   * Get the number of deductions from a day to another day.
+   *
+   * @param fromDay The first epoch day of the range.
+   * @param toDay The last epoch day of the range.
+   * @return The number of deductions of all the card types.
+   */
+  long times(int fromDay, int toDay) {
+    return taps.sum(fromDay, toDay);
+  }
+
+  /**
+   * Get the number of deductions and the fares of every card type on a day.
+   *
+   * @param day The epoch day.
+   * @return The card types with {times, fare}; a type that is not used on the day has zeros.
+   */
+  HashMap<String, Double[]> info(int day) {
+    HashMap<String, double[]> totals = days.get(day);
+    HashMap<String, Double[]> info = new HashMap<>();
+    for (String cardType : cardTypes) {
+      double[] total = (totals == null) ? null : totals.get(cardType);
+      Double[] copy = new Double[2];
+      copy[TIMES] = (total == null) ? 0.0 : total[TIMES];
+      copy[FARE] = (total == null) ? 0.0 : total[FARE];
+      info.put(cardType, copy);
+    }
+    return info;
+  }
+
+  /**
+   * Get the oldest day that has totals.
+   *
+   * @return The epoch day, Integer.MAX_VALUE if no day has totals.
+   */
+  int oldestDay() {
+    int oldest = Integer.MAX_VALUE;
+    for (int day : days.keySet()) {
+      oldest = Math.min(oldest, day);
+    }
+    return oldest;
+  }
+
+  /**
+   * Delete the totals of the days before a day.
+   *
+   * @param firstKeptDay The epoch day of the oldest totals that are kept.
+   */
+  void deleteBefore(int firstKeptDay) {
+    Iterator<Integer> iterator = days.keySet().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next() < firstKeptDay) {
+        iterator.remove();
+      }
+    }
+    taps.clearBefore(firstKeptDay);
+    revenueCents.clearBefore(firstKeptDay);
+  }
+}
@@ -2,6 +2,7 @@ package transitSystem;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * A Station class that represents subway station and bus stop. Station stores information of each
@@ -9,12 +10,22 @@ import java.util.ArrayList;
  */
 public class Station implements Serializable {
 
+  /**
+   * The version of the serialized form, fixed to the value computed for the first form that had
+   * no id and no line ids, so that an older file can be read and recognized.
+   */
+  private static final long serialVersionUID = 9016602565829590393L;
+
   /** The location of a station. */
   private String location;
   /** The type of a station: either a subway station or a bus stop. */
   private String stationType;
+  /** The id of a station, unique and counted from 0 in the transit system. */
+  private int id;
   /** A list that stores nextStation in order to handle intersecting transport lines. */
   private ArrayList<Station> nextStation = new ArrayList<>();
+  /** The ids of the lines that pass this station, counted from 0 in the order of configuration. */
+  private int[] lineIds = new int[0];
 
   /**
    * Creates a new Station. Initialize its location and its type: either a subway station or a bus
@@ -22,10 +33,12 @@ public class Station implements Serializable {
    *
    * @param location The location of this Station.
    * @param stationType The type of this Station.
+   * @param id The id of this Station.
    */
-  Station(String location, String stationType) {
+  Station(String location, String stationType, int id) {
     this.location = location;
     this.stationType = stationType;
+    this.id = id;
   }
 
   /**
@@ -37,6 +50,41 @@ public class Station implements Serializable {
     this.nextStation.add(station);
   }
 
+  /**
+   * Records that a line passes this station.
+   *
+   * @param lineId The id of the line.
+   */
+  void addLine(int lineId) {
+    int[] ids = getLineIds();
+    for (int id : ids) {
+      if (id == lineId) {
+        return;
+      }
+    }
+    lineIds = Arrays.copyOf(ids, ids.length + 1);
+    lineIds[ids.length] = lineId;
+  }
+
+  /**
+   * Gets the ids of the lines that pass this Station.
+   *
+   * @return The line ids.
+   */
+  public int[] getLineIds() {
+    return (lineIds == null) ? new int[0] : lineIds.clone();
+  }
+
+  /**
+   * Check if this Station was saved before the stations had ids and line ids. Such a station is
+   * read with id 0 and no line ids, so the stations have to be built again.
+   *
+   * @return True if the station was saved in the older form.
+   */
+  boolean isOldFormat() {
+    return lineIds == null;
+  }
+
 
   /**
    * Gets location of this Station.
@@ -47,6 +95,15 @@ public class Station implements Serializable {
     return location;
   }
 
+  /**
+   * Gets the id of this Station.
+   *
+   * @return This Station id.
+   */
+  public int getId() {
+    return id;
+  }
+
 
   @Override
   public boolean equals(Object obj) {
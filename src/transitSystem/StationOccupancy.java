@@ -0,0 +1,64 @@
+package transitSystem;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Keeps the live number of cards inside each station, indexed by station id. A card is counted at
+ * the station it tapped in until it taps out. The counters are lock-free so that they can be read
+ * by a dashboard while taps are recorded.
+ */
+class StationOccupancy {
+
+  /** The number of cards inside each station, indexed by station id. */
+  private final AtomicIntegerArray counts;
+
+  /**
+   * Create the counters for all the stations.
+   *
+   * @param numStations The number of stations in the transit system.
+   */
+  StationOccupancy(int numStations) {
+    counts = new AtomicIntegerArray(numStations);
+  }
+
+  /**
+   * Record a card entering a station.
+   *
+   * @param stationId The id of the station.
+   */
+  void enter(int stationId) {
+    counts.incrementAndGet(stationId);
+  }
+
+  /**
+   * Record a card that entered a station leaving the transit system.
+   *
+   * @param stationId The id of the station that the card entered.
+   */
+  void exit(int stationId) {
+    counts.decrementAndGet(stationId);
+  }
+
+  /**
+   * Get the number of cards inside a station.
+   *
+   * @param stationId The id of the station.
+   * @return The number of cards that tapped in at the station and did not tap out yet.
+   */
+  int get(int stationId) {
+    return counts.get(stationId);
+  }
+
+  /**
+   * Copy the counters of all the stations.
+   *
+   * @return An array of the number of cards inside each station, indexed by station id.
+   */
+  int[] snapshot() {
+    int[] copy = new int[counts.length()];
+    for (int i = 0; i < copy.length; i++) {
+      copy[i] = counts.get(i);
+    }
+    return copy;
+  }
+}
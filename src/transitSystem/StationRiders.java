@@ -0,0 +1,168 @@
+package transitSystem;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The distinct cards that used every station on one day, as a HyperLogLog sketch for every
+ * station id that was used. A day is written as records of two kinds: a tap of a card at a
+ * station, appended when it changes the sketch of the station, and the whole sketch of a station,
+ * written when the day is compacted.
+ */
+final class StationRiders {
+
+  /** The kind of a record of one tap. */
+  static final byte TAP = 0;
+
+  /** The kind of a record of a whole sketch. */
+  static final byte SKETCH = 1;
+
+  /** The sketch of every station id, null if no card used the station. */
+  private HyperLogLog[] sketches;
+
+  /**
+   * Create the sketches of a day with room for some stations.
+   *
+   * @param stationCount The number of stations.
+   */
+  StationRiders(int stationCount) {
+    sketches = new HyperLogLog[Math.max(stationCount, 1)];
+  }
+
+  /**
+   * Add a card that used a station.
+   *
+   * @param stationId The id of the station.
+   * @param cardId The id of the card.
+   * @return True if the sketch of the station changed.
+   */
+  boolean add(int stationId, int cardId) {
+    return sketchOf(stationId).add(cardId);
+  }
+
+  /**
+   * Add the distinct cards of a station to a sketch.
+   *
+   * @param stationId The id of the station.
+   * @param into The sketch that the cards are added to.
+   */
+  void mergeInto(int stationId, HyperLogLog into) {
+    if (stationId >= 0 && stationId < sketches.length && sketches[stationId] != null) {
+      into.merge(sketches[stationId]);
+    }
+  }
+
+  /**
+   * Add the distinct cards of every station of other sketches, such as the ones of another day.
+   *
+   * @param other The other sketches.
+   */
+  void mergeFrom(StationRiders other) {
+    for (int stationId = 0; stationId < other.sketches.length; stationId++) {
+      if (other.sketches[stationId] != null) {
+        sketchOf(stationId).merge(other.sketches[stationId]);
+      }
+    }
+  }
+
+  /**
+   * Count the distinct cards that used any of some stations. A card that used several of them is
+   * counted once.
+   *
+   * @param stationIds The ids of the stations.
+   * @return The approximate number of distinct cards.
+   */
+  long count(int[] stationIds) {
+    HyperLogLog merged = new HyperLogLog();
+    for (int stationId : stationIds) {
+      mergeInto(stationId, merged);
+    }
+    return merged.count();
+  }
+
+  /**
+   * Write the sketch of every station that was used.
+   *
+   * @param out The stream to write to.
+   * @throws IOException If the stream cannot be written.
+   */
+  void writeTo(DataOutputStream out) throws IOException {
+    for (int stationId = 0; stationId < sketches.length; stationId++) {
+      if (sketches[stationId] != null && !sketches[stationId].isEmpty()) {
+        out.writeByte(SKETCH);
+        out.writeInt(stationId);
+        out.write(sketches[stationId].toBytes());
+      }
+    }
+  }
+
+  /**
+   * Write one tap.
+   *
+   * @param out The stream to write to.
+   * @param stationId The id of the station.
+   * @param cardId The id of the card.
+   * @throws IOException If the stream cannot be written.
+   */
+  static void writeTap(DataOutputStream out, int stationId, int cardId) throws IOException {
+    out.writeByte(TAP);
+    out.writeInt(stationId);
+    out.writeInt(cardId);
+  }
+
+  /**
+   * Read records written by writeTo or writeTap until the end of a stream. A record that was cut
+   * short at the end of the stream is ignored.
+   *
+   * @param in The stream to read from.
+   * @param stationCount The number of stations.
+   * @return The sketches of the records.
+   * @throws IOException If the stream cannot be read or has a record of an unknown kind.
+   */
+  static StationRiders readFrom(DataInputStream in, int stationCount) throws IOException {
+    StationRiders riders = new StationRiders(stationCount);
+    byte[] registers = new byte[HyperLogLog.REGISTERS];
+    try {
+      while (true) {
+        int kind = in.read();
+        if (kind < 0) {
+          return riders;
+        }
+        int stationId = in.readInt();
+        if (stationId < 0) {
+          throw new IOException("Invalid station id " + stationId);
+        }
+        if (kind == TAP) {
+          riders.add(stationId, in.readInt());
+        } else if (kind == SKETCH) {
+          in.readFully(registers);
+          riders.sketchOf(stationId).merge(registers);
+        } else {
+          throw new IOException("Unknown record kind " + kind);
+        }
+      }
+    } catch (EOFException ex) {
+      // the last record was cut short when it was appended
+      return riders;
+    }
+  }
+
+  /**
+   * Get the sketch of a station, creating it if the station was not used yet.
+   *
+   * @param stationId The id of the station.
+   * @return The sketch.
+   */
+  private HyperLogLog sketchOf(int stationId) {
+    if (stationId >= sketches.length) {
+      sketches = Arrays.copyOf(sketches, Math.max(sketches.length * 2, stationId + 1));
+    }
+    if (sketches[stationId] == null) {
+      sketches[stationId] = new HyperLogLog();
+    }
+    return sketches[stationId];
+  }
+}
@@ -1,16 +1,24 @@
 package transitSystem;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.HashMap;
+import java.util.logging.Level;
 
 /** A TimesPass class that represents a transit TimesPass that can be used 10 times initially. */
 public class TimesPass extends TransitPass implements AbleTopUp, Serializable {
 
+  /**
+   * The version of the serialized form, fixed to the value computed for the form that kept the
+   * cost in a HashMap by date string, so that the cards saved then can still be read.
+   */
+  private static final long serialVersionUID = 6196130538099581960L;
+
   /** The current available times of ride of a TimesPass. */
   private Integer times = 10;
 
   /** Records the total cost of this card each day. */
-  private HashMap<String, Double[]> costPerDay = new HashMap<>();
+  private DailyLedger costPerDay = new DailyLedger();
 
   /**
    * Creates a new TimesPass. Initialize its times of ride, and id. Set this new TimesPass initially
@@ -26,7 +34,7 @@ public class TimesPass extends TransitPass implements AbleTopUp, Serializable {
    * @return The CostPerDay of the card.
    */
   @Override
-  HashMap<String, Double[]> getCostPerDay() {
+  DailyLedger getCostPerDay() {
     return costPerDay;
   }
 
@@ -34,20 +42,17 @@ public class TimesPass extends TransitPass implements AbleTopUp, Serializable {
    * Deduct a mount of money from the WeeklyPass.
    *
    * @param fare The amount of money that need to be deducted.
-   * @param time The time of the deduction happened.
-   * @param accountManager The AccountManager that keep tracks all the account.
+   * @param time The epoch day of the deduction happened.
    * @return The message that shows the remaining balance.
    */
   @Override
-  String tap(double fare, String time, AccountManager accountManager) {
+  String tap(double fare, int time) {
     // deduct one time from the card
     int DEDUCT_VALUE = 1;
     this.setTimes(this.getTimes() - DEDUCT_VALUE);
-    System.out.println("Remaining times is " + getTimes());
+    Logging.getLogger().log(Level.FINE, () -> "Remaining times is " + getTimes());
     // update the card cost information on the specific date.
     updateCardCostInformation(time, fare);
-    // update account cost information in the specific date
-    accountManager.updateAccountCostInformation(this.getOwnerEmail(), time, fare);
     return "Remaining times is " + getTimes();
   }
 
@@ -73,22 +78,12 @@ public class TimesPass extends TransitPass implements AbleTopUp, Serializable {
   /**
    * Updates the cost information of a card every time the money is deducted.
    *
-   * @param time The specific time that the money is deducted.
+   * @param time The epoch day that the money is deducted.
    * @param fare The fare which increase the total cost of this card.
    */
   @Override
-  void updateCardCostInformation(String time, double fare) {
-    if (this.costPerDay.containsKey(time)) {
-      double totalCost = costPerDay.get(time)[1];
-      totalCost += fare;
-      costPerDay.get(time)[0]++;
-      costPerDay.get(time)[1] = totalCost;
-    } else {
-      Double[] date = new Double[2];
-      date[0] = 1.0;
-      date[1] = fare;
-      costPerDay.put(time, date);
-    }
+  void updateCardCostInformation(int time, double fare) {
+    costPerDay.add(time, 1, fare);
   }
 
   /**
@@ -105,9 +100,9 @@ public class TimesPass extends TransitPass implements AbleTopUp, Serializable {
       costs.append(0);
       times.append(0);
     } else {
-      for (String key : costPerDay.keySet()) {
-        costs.append(costPerDay.get(key)[1]);
-        times.append(costPerDay.get(key)[0].intValue());
+      for (int i = 0; i < costPerDay.size(); i++) {
+        costs.append(costPerDay.amountAt(i));
+        times.append(costPerDay.countAt(i));
         costs.append(" ");
       }
     }
@@ -179,4 +174,17 @@ public class TimesPass extends TransitPass implements AbleTopUp, Serializable {
     final int FARE = 2;
     return this.getTimes() * FARE;
   }
+
+  /**
+   * Read a card, converting the cost that was saved in a HashMap by date string.
+   *
+   * @param in The stream the card is read from.
+   * @throws IOException If the card cannot be read.
+   * @throws ClassNotFoundException If a class of the card is not found.
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    ObjectInputStream.GetField fields = in.readFields();
+    times = (Integer) fields.get("times", null);
+    costPerDay = DailyLedger.fromSaved(fields.get("costPerDay", null));
+  }
 }
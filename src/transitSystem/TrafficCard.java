@@ -1,13 +1,22 @@
 package transitSystem;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.HashMap;
+import java.util.logging.Level;
 
 /**
  * A TrafficCard class that represents a transit card. TrafficCard stores information of a card,
  * such as card number, balance, status, and card owner's email address.
  */
 public class TrafficCard extends TransitPass implements AbleTopUp, Serializable {
+
+  /**
+   * The version of the serialized form, fixed to the value computed for the form that kept the
+   * cost in a HashMap by date string, so that the cards saved then can still be read.
+   */
+  private static final long serialVersionUID = -4921906127045905684L;
+
   /** The current balance of a card. */
   private double balance = 19;
 
@@ -29,7 +38,7 @@ public class TrafficCard extends TransitPass implements AbleTopUp, Serializable
   }
 
   /** Records the total cost of this card each day. */
-  private HashMap<String, Double[]> costPerDay = new HashMap<>();
+  private DailyLedger costPerDay = new DailyLedger();
 
   /**
    * Gets the current balance of this card.
@@ -69,12 +78,12 @@ public class TrafficCard extends TransitPass implements AbleTopUp, Serializable
   }
 
   /**
-   * Gets the HashMap which record the total cost of this card each day.
+   * Gets the DailyLedger which record the total cost of this card each day.
    *
-   * @return a HashMap which record the total cost of this card each day.
+   * @return a DailyLedger which record the total cost of this card each day.
    */
   @Override
-  HashMap<String, Double[]> getCostPerDay() {
+  DailyLedger getCostPerDay() {
     return costPerDay;
   }
 
@@ -82,18 +91,17 @@ public class TrafficCard extends TransitPass implements AbleTopUp, Serializable
    * Deduct a mount of money from the WeeklyPass.
    *
    * @param fare The amount of money that need to be deducted.
-   * @param time The time of the deduction happened.
-   * @param accountManager The AccountManager that keep tracks all the account.
+   * @param time The epoch day of the deduction happened.
    * @return The message that shows the remaining balance.
    */
   @Override
-  String tap(double fare, String time, AccountManager accountManager) {
+  String tap(double fare, int time) {
     setBalance(getBalance() - fare);
-    System.out.println("$" + fare + " has been deducted from the balance of card " + cardId);
+    Logging.getLogger()
+        .log(
+            Level.FINE, () -> "$" + fare + " has been deducted from the balance of card " + cardId);
     // update the card cost information on the specific date.
     updateCardCostInformation(time, fare);
-    // update account cost information in the specific date
-    accountManager.updateAccountCostInformation(this.getOwnerEmail(), time, fare);
     return "deducted: $"
         + String.valueOf(fare)
         + System.getProperty("line.separator")
@@ -114,22 +122,12 @@ public class TrafficCard extends TransitPass implements AbleTopUp, Serializable
   /**
    * Updates the cost information of a card every time the money is deducted.
    *
-   * @param time The specific time that the money is deducted.
+   * @param time The epoch day that the money is deducted.
    * @param fare The fare which increase the total cost of this card.
    */
   @Override
-  void updateCardCostInformation(String time, double fare) {
-    if (this.costPerDay.containsKey(time)) {
-      double totalCost = costPerDay.get(time)[1];
-      totalCost += fare;
-      costPerDay.get(time)[0]++;
-      costPerDay.get(time)[1] = totalCost;
-    } else {
-      Double[] date = new Double[2];
-      date[0] = 1.0;
-      date[1] = fare;
-      costPerDay.put(time, date);
-    }
+  void updateCardCostInformation(int time, double fare) {
+    costPerDay.add(time, 1, fare);
   }
 
   /**
@@ -145,9 +143,9 @@ public class TrafficCard extends TransitPass implements AbleTopUp, Serializable
       costs.append(0);
       times.append(0);
     } else {
-      for (String key : costPerDay.keySet()) {
-        costs.append(costPerDay.get(key)[1]);
-        times.append(costPerDay.get(key)[0].intValue());
+      for (int i = 0; i < costPerDay.size(); i++) {
+        costs.append(costPerDay.amountAt(i));
+        times.append(costPerDay.countAt(i));
         costs.append(" ");
       }
     }
@@ -168,4 +166,17 @@ public class TrafficCard extends TransitPass implements AbleTopUp, Serializable
         + "Total times    : "
         + times;
   }
+
+  /**
+   * Read a card, converting the cost that was saved in a HashMap by date string.
+   *
+   * @param in The stream the card is read from.
+   * @throws IOException If the card cannot be read.
+   * @throws ClassNotFoundException If a class of the card is not found.
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    ObjectInputStream.GetField fields = in.readFields();
+    balance = fields.get("balance", 0.0);
+    costPerDay = DailyLedger.fromSaved(fields.get("costPerDay", null));
+  }
 }
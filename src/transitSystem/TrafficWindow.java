@@ -0,0 +1,32 @@
+package transitSystem;
+
+/**
+ * The sliding windows of time that the busiest stations and trips are counted over. A window is
+ * split into buckets of equal length, and the oldest bucket is dropped as a whole when time moves
+ * past it, so a window covers its length plus at most one bucket.
+ */
+public enum TrafficWindow {
+  /** The last 15 minutes, in buckets of 1 minute. */
+  LAST_15_MINUTES(60_000L, 15),
+  /** The last hour, in buckets of 5 minutes. */
+  LAST_HOUR(300_000L, 12),
+  /** The last day, in buckets of 1 hour. */
+  LAST_DAY(3_600_000L, 24);
+
+  /** The length of a bucket in milliseconds. */
+  final long bucketMillis;
+
+  /** The number of buckets of the window. */
+  final int buckets;
+
+  /**
+   * Create a window.
+   *
+   * @param bucketMillis The length of a bucket in milliseconds.
+   * @param buckets The number of buckets of the window.
+   */
+  TrafficWindow(long bucketMillis, int buckets) {
+    this.bucketMillis = bucketMillis;
+    this.buckets = buckets;
+  }
+}
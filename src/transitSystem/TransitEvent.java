@@ -0,0 +1,133 @@
+package transitSystem;
+
+import java.util.Date;
+
+/**
+ * A TransitEvent that describes one change in the transit system, such as a card entering or
+ * exiting a station, a deduction or the system being opened. It is handed to the observers and
+ * subscribers instead of the state of the system.
+ */
+public class TransitEvent {
+
+  /** The kinds of change in the transit system. */
+  public enum Type {
+    /** A card tapped in at a station. */
+    ENTER,
+    /** A card tapped out at a station. */
+    EXIT,
+    /** Money was deducted from a card. */
+    DEDUCTION,
+    /** A card was topped up. */
+    TOP_UP,
+    /** A card was suspended. */
+    SUSPENSION,
+    /** A suspended card was activated. */
+    ACTIVATION,
+    /** The system was opened for a day. */
+    SYSTEM_OPEN,
+    /** The system was closed. */
+    SYSTEM_CLOSE
+  }
+
+  /** The kind of this change. */
+  private final Type type;
+  /** The id of the card that changed, 0 if no card changed. */
+  private final int cardId;
+  /** The station where the change happened, null if it is not at a station. */
+  private final Station station;
+  /** The time in milliseconds when the change happened. */
+  private final long time;
+  /** The money that was deducted or topped up, 0 for other changes. */
+  private final double amount;
+
+  /**
+   * Create a new TransitEvent without an amount of money.
+   *
+   * @param type The kind of this change.
+   * @param cardId The id of the card that changed.
+   * @param station The station where the change happened.
+   * @param time The time in milliseconds when the change happened.
+   */
+  TransitEvent(Type type, int cardId, Station station, long time) {
+    this(type, cardId, station, time, 0);
+  }
+
+  /**
+   * Create a new TransitEvent.
+   *
+   * @param type The kind of this change.
+   * @param cardId The id of the card that changed.
+   * @param station The station where the change happened.
+   * @param time The time in milliseconds when the change happened.
+   * @param amount The money that was deducted or topped up.
+   */
+  TransitEvent(Type type, int cardId, Station station, long time, double amount) {
+    this.type = type;
+    this.cardId = cardId;
+    this.station = station;
+    this.time = time;
+    this.amount = amount;
+  }
+
+  /**
+   * Get the kind of this change.
+   *
+   * @return The type of the event.
+   */
+  public Type getType() {
+    return type;
+  }
+
+  /**
+   * Get the id of the card that changed.
+   *
+   * @return The card id.
+   */
+  public int getCardId() {
+    return cardId;
+  }
+
+  /**
+   * Get the station where the change happened.
+   *
+   * @return The station.
+   */
+  public Station getStation() {
+    return station;
+  }
+
+  /**
+   * Get the time when the change happened.
+   *
+   * @return The time in milliseconds.
+   */
+  public long getTime() {
+    return time;
+  }
+
+  /**
+   * Get the money that was deducted or topped up.
+   *
+   * @return The amount of money, 0 if no money changed.
+   */
+  public double getAmount() {
+    return amount;
+  }
+
+  /**
+   * Return the string representation of the TransitEvent.
+   *
+   * @return The string message of the event.
+   */
+  @Override
+  public String toString() {
+    return type
+        + " card "
+        + cardId
+        + " at "
+        + ((station == null) ? "null" : station.getLocation() + " " + station.getStationType())
+        + " on "
+        + new Date(time)
+        + ((amount == 0) ? "" : " $" + amount);
+  }
+}
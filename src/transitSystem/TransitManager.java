@@ -1,31 +1,126 @@
 package transitSystem;
 
 import java.io.*;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.*;
 
 /** The TransitManager that keep track any transit activities. */
-public class TransitManager extends Observable implements Serializable {
+public class TransitManager implements Serializable {
   /** Record all the trip information. */
   private HashMap<Integer, ArrayList<ContinuousTrip>> tripRecord = new HashMap<>();
 
   /** Store all the stations in the transit system. */
   private HashSet<Station> stations = new HashSet<>();
 
-  /** Record the number of stations that has been visited per day. */
-  private HashMap<String, Integer> countStationsPerDay = new HashMap<>();
+  /** Record the number of stations that has been visited per epoch day. */
+  private HashMap<Integer, Integer> countStationsPerDay = new HashMap<>();
 
   /** The CardManager that manage all the card in the transit system. */
   private CardManager cardManager;
 
-  /** Record the number of people in each stations. */
-  private HashMap<Integer, Tuple<Station, Calendar>> inStation = new HashMap<>();
+  /** Record the number of people in each stations, with the time in milliseconds they entered. */
+  private HashMap<Integer, Tuple<Station, Long>> inStation = new HashMap<>();
 
   /** Record the most recent tap in time. */
   private Long mostRecentTime;
 
+  /** The number of stations visited on every epoch day, rebuilt from countStationsPerDay. */
+  private transient DailySeries stationsSeries;
+
+  /** The name of the partitions of the origin-destination counts. */
+  private static final String OD_PARTITION = "od";
+
+  /** The origin-destination counts of the days that were used, loaded from their partitions. */
+  private transient HashMap<Integer, OdMatrix> flowsByDay = new HashMap<>();
+
+  /** The origin-destination records of the taps that are not appended to their partition yet. */
+  private transient DayPartitions.Batch pendingFlows = new DayPartitions.Batch(OD_PARTITION);
+
+  /** The name of the partitions of the hourly entries and exits of the stations. */
+  private static final String HOURLY_PARTITION = "hourly";
+
+  /** The hourly entries and exits of the days that were used, loaded from their partitions. */
+  private transient HashMap<Integer, HourlyLoad> loadByDay = new HashMap<>();
+
+  /** The hourly records of the taps that are not appended to their partition yet. */
+  private transient DayPartitions.Batch pendingLoad = new DayPartitions.Batch(HOURLY_PARTITION);
+
+  /** The name of the partitions of the distinct cards that used the stations. */
+  private static final String RIDERS_PARTITION = "riders";
+
+  /** The distinct cards of the stations on the days that were used, loaded from partitions. */
+  private transient HashMap<Integer, StationRiders> ridersByDay = new HashMap<>();
+
+  /** The rider records of the taps that are not appended to their partition yet. */
+  private transient DayPartitions.Batch pendingRiders = new DayPartitions.Batch(RIDERS_PARTITION);
+
+  /** The name of the partitions of the durations of the trips. */
+  private static final String DURATIONS_PARTITION = "durations";
+
+  /** The durations of the trips of the days that were used, loaded from their partitions. */
+  private transient HashMap<Integer, DayDurations> durationsByDay = new HashMap<>();
+
+  /** The trip durations of the taps that are not appended to their partition yet. */
+  private transient DayPartitions.Batch pendingDurations =
+      new DayPartitions.Batch(DURATIONS_PARTITION);
+
+  /** The seconds between two writes of the records that the taps changed. */
+  static final long FLUSH_SECONDS = Long.getLong("transitSystem.flushSeconds", 5);
+
+  /** Whether the trips changed since they were last saved. */
+  private transient boolean tripsChanged;
+
+  /** Whether countStationsPerDay changed since it was last saved. */
+  private transient boolean stationsPassedChanged;
+
+  /** The first day that is kept; the days before it are treated as deleted. */
+  private transient Retention retention = new Retention();
+
+  /** The trips of all the cards by the day they started, rebuilt from tripRecord when loaded. */
+  private transient TripIndex tripIndex;
+
+  /** The largest number of cards whose recent trips are kept in memory. */
+  private static final int RECENT_TRIPS_CARDS = 100_000;
+
+  /** The recent finished trips of the cards that were used last, the least recent first. */
+  private transient LinkedHashMap<Integer, RecentTrips> recentTrips =
+      new LinkedHashMap<Integer, RecentTrips>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, RecentTrips> eldest) {
+          return size() > RECENT_TRIPS_CARDS;
+        }
+      };
+
+  /** The largest number of stations or pairs of stations that the busiest queries return. */
+  static final int BUSIEST_CAPACITY = 32;
+
+  /** The taps of every station over the recent windows of time, by station id. */
+  private transient HeavyHitters busyStations = new HeavyHitters(BUSIEST_CAPACITY);
+
+  /** The trips between every pair of stations over the recent windows of time. */
+  private transient HeavyHitters busyFlows = new HeavyHitters(BUSIEST_CAPACITY);
+
+  /** The number of lines, which is one more than the largest line id. */
+  private transient int lineCount;
+
+  /** All the stations in the transit system, indexed by station id. */
+  private transient Station[] stationsById;
+
+  /** Record the number of people in each station, rebuilt from inStation when loaded. */
+  private transient StationOccupancy occupancy;
+
+  /** Tell the observers about the taps without making the tap wait for them. */
+  private transient EventDispatcher dispatcher = new EventDispatcher("transit-events");
+
+  /** Publish the taps to the subscribers. */
+  private transient EventPublisher<TransitEvent> events;
+
+  /** The totals of the reports that are built, forgotten when a finished trip changes them. */
+  private transient ReportCache reportCache = new ReportCache();
+
   /**
    * Create a TransitManager that track all the activities of a transit system. if there exist some
    * records of the previous trips, stations, and date then read from the files and reconstruct the
@@ -41,10 +136,97 @@ public class TransitManager extends Observable implements Serializable {
     // Reading the object from a file
     deserializeTripAndStationRecord();
     deserializeStations();
+    adoptOldStations();
     deserializeDateToStations();
+    stationsSeries = new DailySeries();
+    for (Map.Entry<Integer, Integer> entry : countStationsPerDay.entrySet()) {
+      stationsSeries.add(entry.getKey(), entry.getValue());
+    }
+    indexStations();
+    tripIndex = TripIndex.of(tripRecord);
+    // the records that the taps change are written every few seconds and when the program exits
+    ScheduledExecutorService flusher =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "transit-flush");
+              thread.setDaemon(true);
+              return thread;
+            });
+    flusher.scheduleWithFixedDelay(this::flush, FLUSH_SECONDS, FLUSH_SECONDS, TimeUnit.SECONDS);
+    Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "transit-flush-exit"));
     Logging.getLogger().log(Level.FINE, "successfully deserialize TransitManager");
   }
 
+  /**
+   * Write the records that the taps changed since they were last written: the records batched
+   * for the partitions of the day, the trips and the number of stations passed. The taps only
+   * change them in memory, so a tap does not wait for the files.
+   */
+  synchronized void flush() {
+    pendingFlows.flush();
+    pendingLoad.flush();
+    pendingRiders.flush();
+    pendingDurations.flush();
+    if (tripsChanged) {
+      serializeTrips();
+    }
+    if (stationsPassedChanged) {
+      serializeDateToStations();
+    }
+  }
+
+  /** Index the stations by their id and count the cards that are still inside each station. */
+  private void indexStations() {
+    stationsById = new Station[stations.size()];
+    lineCount = 0;
+    for (Station station : stations) {
+      stationsById[station.getId()] = station;
+      for (int lineId : station.getLineIds()) {
+        lineCount = Math.max(lineCount, lineId + 1);
+      }
+    }
+    occupancy = new StationOccupancy(stationsById.length);
+    for (Tuple<Station, Long> entered : inStation.values()) {
+      occupancy.enter(entered.zero.getId());
+    }
+  }
+
+  /**
+   * Sets the publisher of the tap events.
+   *
+   * @param events The publisher that the tap events are submitted to.
+   */
+  void setEventPublisher(EventPublisher<TransitEvent> events) {
+    this.events = events;
+  }
+
+  /**
+   * Sets the retention that hides the records of the days before its first kept day.
+   *
+   * @param retention The retention of the system.
+   */
+  void setRetention(Retention retention) {
+    this.retention = retention;
+  }
+
+  /**
+   * Get the start of the first day whose records are kept.
+   *
+   * @return The time in milliseconds, Long.MIN_VALUE if the retention has not started.
+   */
+  long firstKeptMillis() {
+    return retention.firstKeptMillis();
+  }
+
+  /**
+   * Sets the cache of the report totals that the finished trips invalidate.
+   *
+   * @param reportCache The cache of the report totals.
+   */
+  void setReportCache(ReportCache reportCache) {
+    this.reportCache = reportCache;
+  }
+
   /** Deserialize tripRecord and inStation fields */
   @SuppressWarnings("unchecked")
   private void deserializeTripAndStationRecord() {
@@ -55,20 +237,22 @@ public class TransitManager extends Observable implements Serializable {
         ObjectInputStream tripIn = new ObjectInputStream(tripFile);
         Tuple<
                 HashMap<Integer, ArrayList<ContinuousTrip>>,
-                HashMap<Integer, Tuple<Station, Calendar>>>
+                HashMap<Integer, Tuple<Station, Object>>>
             tuple;
         tuple =
             (Tuple<
                     HashMap<Integer, ArrayList<ContinuousTrip>>,
-                    HashMap<Integer, Tuple<Station, Calendar>>>)
+                    HashMap<Integer, Tuple<Station, Object>>>)
                 tripIn.readObject();
         tripRecord = tuple.zero;
-        inStation = tuple.one;
+        inStation = toEntryMillis(tuple.one);
         tripIn.close();
         tripFile.close();
       } else {
         serializeTrips();
       }
+    } catch (InvalidClassException ex) {
+      OldDataFile.setAside("data-Trips.out", ex);
     } catch (IOException ex) {
       Logging.getLogger()
           .log(Level.SEVERE, "IOException occurs in TransitManager.TransitManager()", ex);
@@ -81,6 +265,84 @@ public class TransitManager extends Observable implements Serializable {
     }
   }
 
+  /**
+   * Convert the stations and times that the cards entered as they were saved. Before the times
+   * were kept in milliseconds they were kept in a Calendar.
+   *
+   * @param saved The map read from the file, with the times as Long or Calendar.
+   * @return The map with the times in milliseconds.
+   */
+  private static HashMap<Integer, Tuple<Station, Long>> toEntryMillis(
+      HashMap<Integer, Tuple<Station, Object>> saved) {
+    HashMap<Integer, Tuple<Station, Long>> converted = new HashMap<>();
+    for (Map.Entry<Integer, Tuple<Station, Object>> entry : saved.entrySet()) {
+      Object time = entry.getValue().one;
+      converted.put(
+          entry.getKey(),
+          new Tuple<>(
+              entry.getValue().zero,
+              (time instanceof Calendar) ? ((Calendar) time).getTimeInMillis() : (Long) time));
+    }
+    return converted;
+  }
+
+  /**
+   * Replace the stations of the trips and entries that were saved before the stations had ids
+   * with the stations of the system, and save the trips again. Every trip carries its own copy of
+   * its stations, and the copies saved by the first version have no id and no line ids. A file
+   * holds only one form, so nothing is walked once a station with an id is found.
+   */
+  private void adoptOldStations() {
+    HashMap<String, Station> byName = new HashMap<>();
+    for (Station station : stations) {
+      byName.put(station.getLocation() + " " + station.getStationType(), station);
+    }
+    int replaced = 0;
+    for (Map.Entry<Integer, Tuple<Station, Long>> entry : inStation.entrySet()) {
+      Station station = entry.getValue().zero;
+      if (!station.isOldFormat()) {
+        return;
+      }
+      entry.setValue(new Tuple<>(adopt(byName, station), entry.getValue().one));
+      replaced++;
+    }
+    for (ArrayList<ContinuousTrip> trips : tripRecord.values()) {
+      for (ContinuousTrip trip : trips) {
+        for (Trip leg = trip.getFront(); leg != null; leg = leg.getNext()) {
+          Station enter = leg.getEnterStation();
+          Station exit = leg.getExitStation();
+          if ((enter != null && !enter.isOldFormat()) || (exit != null && !exit.isOldFormat())) {
+            return;
+          }
+          if (enter != null) {
+            leg.setEnter(adopt(byName, enter), leg.getEnterTime());
+          }
+          if (exit != null) {
+            leg.setExit(adopt(byName, exit), leg.getExitTime());
+          }
+          replaced++;
+        }
+      }
+    }
+    if (replaced > 0) {
+      Logging.getLogger()
+          .log(Level.INFO, "Converted {} trips and entries saved by the first version", replaced);
+      serializeTrips();
+    }
+  }
+
+  /**
+   * Find the station of the system that a saved copy of a station stands for.
+   *
+   * @param byName The stations of the system by location and type.
+   * @param saved The saved copy.
+   * @return The station of the system, or the copy if the station is no longer configured.
+   */
+  private static Station adopt(HashMap<String, Station> byName, Station saved) {
+    Station station = byName.get(saved.getLocation() + " " + saved.getStationType());
+    return (station == null) ? saved : station;
+  }
+
   /** Deserialize stations*/
   @SuppressWarnings("unchecked")
   private void deserializeStations() {
@@ -92,10 +354,19 @@ public class TransitManager extends Observable implements Serializable {
         stations = (HashSet<Station>) stationIn.readObject();
         stationIn.close();
         stationFile.close();
+        if (stations.stream().anyMatch(Station::isOldFormat)) {
+          Logging.getLogger()
+              .log(Level.WARNING, "data-Stations.out has no station ids, build it again");
+          rebuildStations();
+        }
       } else {
         readConfiguration();
         serializeStations();
       }
+    } catch (InvalidClassException ex) {
+      Logging.getLogger()
+          .log(Level.WARNING, "data-Stations.out has an older format, build it again", ex);
+      rebuildStations();
     } catch (IOException ex) {
       Logging.getLogger()
           .log(Level.SEVERE, "IOException occurs in TransitManager.TransitManager()", ex);
@@ -107,6 +378,17 @@ public class TransitManager extends Observable implements Serializable {
     }
   }
 
+  /**
+   * Build the stations again from configuration.txt and save them, when the saved stations are
+   * from an older version. The stations only come from the configuration, so nothing is lost.
+   */
+  private void rebuildStations() {
+    stations = new HashSet<>();
+    lineCount = 0;
+    readConfiguration();
+    serializeStations();
+  }
+
   /** Deserialize countStationsPerDay*/
   @SuppressWarnings("unchecked")
   private void deserializeDateToStations() {
@@ -116,9 +398,10 @@ public class TransitManager extends Observable implements Serializable {
         // Method for deserialization of object
         FileInputStream stationDateFile = new FileInputStream("data-DateToStations.out");
         ObjectInputStream stationDateIn = new ObjectInputStream(stationDateFile);
-        countStationsPerDay = (HashMap<String, Integer>) stationDateIn.readObject();
+        HashMap<Object, Integer> saved = (HashMap<Object, Integer>) stationDateIn.readObject();
         stationDateIn.close();
         stationDateFile.close();
+        countStationsPerDay = toEpochDays(saved);
       } else {
         serializeDateToStations();
       }
@@ -134,6 +417,35 @@ public class TransitManager extends Observable implements Serializable {
     }
   }
 
+  /**
+   * Convert the number of stations passed per day as it was saved. Before the days were kept as
+   * epoch days they were kept as "yyyy-MM-dd" strings; such a file is converted and saved again.
+   *
+   * @param saved The map read from the file, keyed by epoch day or by date string.
+   * @return The map keyed by epoch day.
+   */
+  private HashMap<Integer, Integer> toEpochDays(HashMap<Object, Integer> saved) {
+    HashMap<Integer, Integer> converted = new HashMap<>();
+    boolean old = false;
+    for (Map.Entry<Object, Integer> entry : saved.entrySet()) {
+      Object key = entry.getKey();
+      Integer day = (key instanceof String) ? EpochDay.parse((String) key) : (Integer) key;
+      old |= key instanceof String;
+      if (day == null) {
+        Logging.getLogger().log(Level.WARNING, "Skip the stations passed on invalid date {}", key);
+      } else {
+        converted.merge(day, entry.getValue(), Integer::sum);
+      }
+    }
+    if (old) {
+      countStationsPerDay = converted;
+      serializeDateToStations();
+      Logging.getLogger()
+          .log(Level.INFO, "Converted the stations passed of {} dates to epoch days", saved.size());
+    }
+    return converted;
+  }
+
   /**
    * Add a new line in to the transit system. the new line can be a bus or a subway line, and all
    * the stations are next to each other. A bus stop and a subway station in the same location will
@@ -145,13 +457,15 @@ public class TransitManager extends Observable implements Serializable {
   private void addLine(String lineType, ArrayList<String> locations) {
     if (lineType.equals("Station") || lineType.equals("Stop")) {
       ArrayList<Station> tempStations = new ArrayList<>();
+      int lineId = lineCount++;
       for (String location : locations) {
-        Station newStation = new Station(location, lineType);
-        for (Station existStation : stations) {
-          if (existStation.equals(newStation)) {
-            newStation = existStation;
-          }
+        Station newStation = getStation(location, lineType);
+        // a new station takes the next id
+        if (newStation == null) {
+          newStation = new Station(location, lineType, stations.size());
+          stations.add(newStation);
         }
+        newStation.addLine(lineId);
         tempStations.add(newStation);
       }
       int numStation = tempStations.size();
@@ -161,7 +475,6 @@ public class TransitManager extends Observable implements Serializable {
         tempStations.get(i).addNextStation(tempStations.get(i - 1));
         tempStations.get(i).addNextStation(tempStations.get(i + 1));
       }
-      this.stations.addAll(tempStations);
       Logging.getLogger()
           .log(
               Level.FINE,
@@ -174,31 +487,24 @@ public class TransitManager extends Observable implements Serializable {
    * Record all passed stops.
    *
    * @param trip The trip.
-   * @param currTime The time that the card exits the station.
-   */
-  private void recordStations(Calendar currTime, ContinuousTrip trip) {
-    SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-    String time = sdf.format(currTime.getTime());
-    Integer stations;
-    Integer amount = trip.countStations();
-    if (countStationsPerDay.containsKey(time)) {
-      stations = countStationsPerDay.get(time) + amount;
-    } else {
-      countStationsPerDay.put(time, amount);
-      stations = amount;
-    }
-
-    this.countStationsPerDay.put(time, stations);
+   * @param currTime The time in milliseconds that the card exits the station.
+   */
+  private void recordStations(long currTime, ContinuousTrip trip) {
+    int time = EpochDay.of(currTime);
+    int amount = trip.countStations();
+    this.countStationsPerDay.merge(time, amount, Integer::sum);
+    this.stationsSeries.add(time, amount);
+    reportCache.invalidate(time);
+    stationsPassedChanged = true;
     Logging.getLogger()
         .log(
             Level.FINE,
-            "Number of stations that a user passed are recorded in TransitManager.countStationsPerDay"
-                + " date: "
-                + time
-                + " amount: "
-                + amount);
-
-    serializeDateToStations();
+            () ->
+                "Number of stations that a user passed are recorded in"
+                    + " TransitManager.countStationsPerDay date: "
+                    + time
+                    + " amount: "
+                    + amount);
   }
 
   // new tap in
@@ -207,18 +513,9 @@ public class TransitManager extends Observable implements Serializable {
    *
    * @param station The taped in station.
    * @param cardId The cardId.
-   * @param currTime The time that the card exits the station.
-   */
-  public String tapIn(int cardId, Calendar currTime, Station station) {
-    // statement for log
-    String printStatement =
-        currTime.getTime()
-            + ", card "
-            + cardId
-            + " enters "
-            + station.getLocation()
-            + " "
-            + station.getStationType();
+   * @param currTime The time in milliseconds that the card enters the station.
+   */
+  public synchronized String tapIn(int cardId, long currTime, Station station) {
     // tap in activity
     ContinuousTrip lastTrip = getLastTrip(cardId);
     String returnValue = this.cardManager.getDeductMessage(cardId);
@@ -227,37 +524,81 @@ public class TransitManager extends Observable implements Serializable {
       this.recordRecentTime(currTime);
       //check is in a continuous trip
       if (lastTrip.isContinuous(station, currTime)) {
+        // the first trip of a card goes into its empty trip
+        boolean started = lastTrip.getFront() == null;
         lastTrip.addEnter(station, currTime);
+        if (started) {
+          tripIndex.add(cardId, lastTrip);
+        }
         // log
         Logging.getLogger()
-            .log(Level.INFO, printStatement + " recorded in an exist continuousTrip");
+            .log(
+                Level.INFO,
+                () ->
+                    new Date(currTime)
+                        + ", card "
+                        + cardId
+                        + " enters "
+                        + station.getLocation()
+                        + " "
+                        + station.getStationType()
+                        + " recorded in an exist continuousTrip");
       } else {
         lastTrip = new ContinuousTrip();
         lastTrip.addEnter(station, currTime);
         this.tripRecord.get(cardId).add(lastTrip);
+        tripIndex.add(cardId, lastTrip);
         // log
-        Logging.getLogger().log(Level.INFO, printStatement + " recorded in a new continuousTrip");
+        Logging.getLogger()
+            .log(
+                Level.INFO,
+                () ->
+                    new Date(currTime)
+                        + ", card "
+                        + cardId
+                        + " enters "
+                        + station.getLocation()
+                        + " "
+                        + station.getStationType()
+                        + " recorded in a new continuousTrip");
       }
       // first add station then deduct money
       if (station.getStationType().equals("Stop")) {
         // record return value and deduct money
         returnValue =
             System.getProperty("line.separator")
-                + cardManager.deductMoney(cardId, lastTrip.calculateStopFair(), currTime);
+                + cardManager.deductMoney(
+                    cardId, lastTrip.calculateStopFair(), currTime, station);
       }
       inStation.put(cardId, new Tuple<>(station, currTime));
+      occupancy.enter(station.getId());
+      recordLoad(currTime, station, HourlyLoad.ENTER);
+      recordRider(currTime, station, cardId);
+      busyStations.add(station.getId(), currTime);
       returnValue = "successfully tapped in " + returnValue;
-      setChanged();
-      notifyObservers(inStation);
+      TransitEvent event = new TransitEvent(TransitEvent.Type.ENTER, cardId, station, currTime);
+      dispatcher.publish(event);
+      events.submit(event);
     } else {
       // log
+      ContinuousTrip failedTrip = lastTrip;
       Logging.getLogger()
           .log(
               Level.INFO,
-              "User has an illegal tapIn activity " + printStatement + ", " + lastTrip.toString());
+              () ->
+                  "User has an illegal tapIn activity "
+                      + new Date(currTime)
+                      + ", card "
+                      + cardId
+                      + " enters "
+                      + station.getLocation()
+                      + " "
+                      + station.getStationType()
+                      + ", "
+                      + failedTrip.toString());
       returnValue = returnValue + recordTapFailedReason(currTime, cardId);
     }
-    serializeTrips();
+    tripsChanged = true;
     return returnValue;
   }
   /**
@@ -268,9 +609,9 @@ public class TransitManager extends Observable implements Serializable {
    *
    * @param lastTrip The last trip that a person experienced.
    * @param cardId The cardId.
-   * @param currTime The time that the card exits the station.
+   * @param currTime The time in milliseconds that the card enters the station.
    */
-  public boolean checkLegalEnter(ContinuousTrip lastTrip, Calendar currTime, int cardId) {
+  public boolean checkLegalEnter(ContinuousTrip lastTrip, long currTime, int cardId) {
     return lastTrip.isLegalEnter(currTime)
         && cardManager.isAbleDeduct(cardId)
         && isTimeCorrect(currTime);
@@ -281,47 +622,68 @@ public class TransitManager extends Observable implements Serializable {
    *
    * @param station The taped in station.
    * @param cardId The cardId.
-   * @param currTime The time that the card exits the station.
-   */
-  public String tapOut(int cardId, Calendar currTime, Station station) {
-    String printStatement =
-        currTime.getTime()
-            + ", card "
-            + cardId
-            + " exits "
-            + station.getLocation()
-            + " "
-            + station.getStationType();
-
+   * @param currTime The time in milliseconds that the card exits the station.
+   */
+  public synchronized String tapOut(int cardId, long currTime, Station station) {
     ContinuousTrip lastTrip = getLastTrip(cardId);
     String returnValue = this.cardManager.getDeductMessage(cardId);
-    //check legal exit
-    if (checkLegalExit(lastTrip, station, currTime, cardId)) {
+    Tuple<Station, Long> entered = inStation.get(cardId);
+    //check legal exit, a card that is not inside any station cannot exit
+    if (entered != null && checkLegalExit(lastTrip, station, currTime, cardId)) {
       this.recordRecentTime(currTime);
       lastTrip.addExit(station, currTime);
       //only deduct money when in a station
       if (station.getStationType().equals("Station")) {
         returnValue =
             System.getProperty("line.separator")
-                + cardManager.deductMoney(cardId, lastTrip.calculateStationFare(), currTime);
+                + cardManager.deductMoney(
+                    cardId, lastTrip.calculateStationFare(), currTime, station);
       }
       this.recordStations(currTime, lastTrip);
-      Logging.getLogger().log(Level.INFO, printStatement);
+      Logging.getLogger()
+          .log(
+              Level.INFO,
+              () ->
+                  new Date(currTime)
+                      + ", card "
+                      + cardId
+                      + " exits "
+                      + station.getLocation()
+                      + " "
+                      + station.getStationType());
       // remove from the record of population in stations
-      if (inStation.remove(cardId) == null) throw new AssertionError();
+      inStation.remove(cardId);
+      occupancy.exit(entered.zero.getId());
+      recordFlow(currTime, entered.zero, station);
+      recordLoad(currTime, station, HourlyLoad.EXIT);
+      recordRider(currTime, station, cardId);
+      busyStations.add(station.getId(), currTime);
+      busyFlows.add(OdMatrix.key(entered.zero.getId(), station.getId()), currTime);
+      recordDuration(currTime, entered, station);
+      recordRecentTrip(cardId, lastTrip);
       returnValue = "successfully tapped out" + returnValue;
-      setChanged();
-      notifyObservers(inStation);
+      TransitEvent event = new TransitEvent(TransitEvent.Type.EXIT, cardId, station, currTime);
+      dispatcher.publish(event);
+      events.submit(event);
     } else {
       // record return value
       Logging.getLogger()
           .log(
               Level.WARNING,
-              printStatement + "This is an illegal exit" + ", " + lastTrip.toString());
+              () ->
+                  new Date(currTime)
+                      + ", card "
+                      + cardId
+                      + " exits "
+                      + station.getLocation()
+                      + " "
+                      + station.getStationType()
+                      + "This is an illegal exit, "
+                      + lastTrip.toString());
       returnValue = returnValue + recordTapFailedReason(currTime, cardId);
     }
 
-    serializeTrips();
+    tripsChanged = true;
     return returnValue;
   }
 
@@ -333,10 +695,10 @@ public class TransitManager extends Observable implements Serializable {
    *
    * @param lastTrip The last trip that a person experienced.
    * @param cardId The cardId.
-   * @param currTime The time that the card exits the station.
+   * @param currTime The time in milliseconds that the card exits the station.
    */
   public boolean checkLegalExit(
-      ContinuousTrip lastTrip, Station station, Calendar currTime, int cardId) {
+      ContinuousTrip lastTrip, Station station, long currTime, int cardId) {
     return lastTrip.isLegalExit(station, currTime)
         && this.cardManager.isAbleDeduct(cardId)
         && isTimeCorrect(currTime);
@@ -345,16 +707,16 @@ public class TransitManager extends Observable implements Serializable {
   /**
    * Record the reasons that why the Tap has Failed.
    *
-   * @param currTime The time of the tap.
+   * @param currTime The time in milliseconds of the tap.
    * @param cardId The taped card's id.
    * @return A string that shows the reason why the tap has failed.
    */
-  private String recordTapFailedReason(Calendar currTime, int cardId) {
+  private String recordTapFailedReason(long currTime, int cardId) {
     StringBuilder reason = new StringBuilder();
     reason.append(System.getProperty("line.separator"));
     if (!isTimeCorrect(currTime)) {
       reason.append("Incorrect time! ");
-      Logging.getLogger().log(Level.WARNING, "Incorrect time!, card id: " + cardId);
+      Logging.getLogger().log(Level.WARNING, () -> "Incorrect time!, card id: " + cardId);
     } else if (!this.cardManager.isAbleDeduct(cardId)) {
       reason.append("This card is unable to deduct money, card id: ");
       reason.append(cardId);
@@ -373,26 +735,142 @@ public class TransitManager extends Observable implements Serializable {
   /**
    * record time to the system.
    *
-   * @param currentTime The current tap card time
+   * @param currentTime The current tap card time in milliseconds
+   */
+  private void recordRecentTime(long currentTime) {
+    this.mostRecentTime = currentTime;
+  }
+
+  /**
+   * Get the time of the most recent tap.
+   *
+   * @return The time in milliseconds, Long.MIN_VALUE if there was no tap since the start.
    */
-  private void recordRecentTime(Calendar currentTime) {
-    this.mostRecentTime = currentTime.getTimeInMillis();
+  long getMostRecentTime() {
+    return mostRecentTime == null ? Long.MIN_VALUE : mostRecentTime;
   }
 
   /**
    * check if a person tapped a card with in correct time(advance to the time that recorded in the
    * system).
    *
-   * @param currentTime The current tap card time
+   * @param currentTime The current tap card time in milliseconds
    */
-  private boolean isTimeCorrect(Calendar currentTime) {
+  private boolean isTimeCorrect(long currentTime) {
     if (mostRecentTime == null) {
       return true;
     } else {
-      return currentTime.getTimeInMillis() >= mostRecentTime - 10000;
+      return currentTime >= mostRecentTime - 10000;
     }
   }
 
+  /**
+   * Get the text of the 3 most recent finished trips of a card, the newest first. It is kept for
+   * the cards that were used last and built again only after a tap out.
+   *
+   * @param cardId The id of the card.
+   * @return The numbered trips, "no recent trips" if the card has no finished trip.
+   */
+  public String viewRecentTrips(int cardId) {
+    return getRecentTrips(cardId).render();
+  }
+
+  /**
+   * Record a trip that a card just tapped out of in its recent trips.
+   *
+   * @param cardId The id of the card.
+   * @param trip The trip.
+   */
+  private synchronized void recordRecentTrip(int cardId, ContinuousTrip trip) {
+    RecentTrips recent = recentTrips.get(cardId);
+    if (recent == null) {
+      // finding them in the trips of the card includes this one
+      getRecentTrips(cardId);
+    } else {
+      recent.record(trip);
+    }
+  }
+
+  /**
+   * Get the recent trips of a card, finding them in its trips if they are not in memory.
+   *
+   * @param cardId The id of the card.
+   * @return The recent trips.
+   */
+  private synchronized RecentTrips getRecentTrips(int cardId) {
+    RecentTrips recent = recentTrips.get(cardId);
+    if (recent == null) {
+      ArrayList<ContinuousTrip> cardTrips = tripRecord.get(cardId);
+      recent = RecentTrips.of((cardTrips == null) ? new ArrayList<>() : cardTrips);
+      recentTrips.put(cardId, recent);
+    }
+    return recent;
+  }
+
+  /**
+   * Get the continuous trips of a card that started from a date to another date. The start of the
+   * range is found with a binary search over the trips of the card.
+   *
+   * @param cardId The id of the card.
+   * @param fromDate The first date of the range, in the format "yyyy-MM-dd".
+   * @param toDate The last date of the range, in the format "yyyy-MM-dd".
+   * @return The trips in the order they started, empty if a date is not valid.
+   */
+  public synchronized ArrayList<ContinuousTrip> cardTripsBetween(
+      int cardId, String fromDate, String toDate) {
+    ArrayList<ContinuousTrip> found = new ArrayList<>();
+    Integer fromDay = EpochDay.parse(fromDate);
+    Integer toDay = EpochDay.parse(toDate);
+    ArrayList<ContinuousTrip> cardTrips = tripRecord.get(cardId);
+    if (fromDay == null || toDay == null || cardTrips == null) {
+      return found;
+    }
+    long fromTime = Math.max(EpochDay.startMillis(fromDay), retention.firstKeptMillis());
+    int from = TripIndex.firstStartingAt(cardTrips, fromTime);
+    int to = TripIndex.firstStartingAt(cardTrips, EpochDay.startMillis(toDay + 1));
+    for (int i = from; i < to; i++) {
+      found.add(cardTrips.get(i));
+    }
+    return found;
+  }
+
+  /**
+   * Get the continuous trips of all the cards that started on a date.
+   *
+   * @param date The date in the format "yyyy-MM-dd".
+   * @return The {card id, trip} of every trip in the order they started, empty if the date is not
+   *     valid.
+   */
+  public ArrayList<Tuple<Integer, ContinuousTrip>> tripsOn(String date) {
+    return tripsBetween(date, date);
+  }
+
+  /**
+   * Get the continuous trips of all the cards that started from a date to another date.
+   *
+   * @param fromDate The first date of the range, in the format "yyyy-MM-dd".
+   * @param toDate The last date of the range, in the format "yyyy-MM-dd".
+   * @return The {card id, trip} of every trip in the order they started on each day, empty if a
+   *     date is not valid.
+   */
+  public ArrayList<Tuple<Integer, ContinuousTrip>> tripsBetween(String fromDate, String toDate) {
+    Integer fromDay = EpochDay.parse(fromDate);
+    Integer toDay = EpochDay.parse(toDate);
+    if (fromDay == null || toDay == null) {
+      return new ArrayList<>();
+    }
+    return tripIndex.between(fromDay, toDay);
+  }
+
+  /**
+   * Forget the recent trips of a card after some of its trips are deleted.
+   *
+   * @param cardId The id of the card.
+   */
+  private synchronized void forgetRecentTrips(int cardId) {
+    recentTrips.remove(cardId);
+  }
+
   /**
    * Get the previous trip from system "tripRecord"
    *
@@ -425,6 +903,15 @@ public class TransitManager extends Observable implements Serializable {
     return returnValue;
   }
 
+  /**
+   * Get the dispatcher that tells the observers about every tap with a TransitEvent.
+   *
+   * @return The EventDispatcher of the taps.
+   */
+  public EventDispatcher getEventDispatcher() {
+    return dispatcher;
+  }
+
   /**
    * Get the record of all the trip.
    *
@@ -459,6 +946,7 @@ public class TransitManager extends Observable implements Serializable {
    * record.
    */
   private void serializeTrips() {
+    tripsChanged = false;
     try {
       // Saving of object in a file
       FileOutputStream tripFile = new FileOutputStream("data-Trips.out");
@@ -479,6 +967,7 @@ public class TransitManager extends Observable implements Serializable {
    * DateToStations record.
    */
   private void serializeDateToStations() {
+    stationsPassedChanged = false;
     try {
       // Saving of object in a file
       FileOutputStream stationDateFile = new FileOutputStream("data-DateToStations.out");
@@ -508,12 +997,23 @@ public class TransitManager extends Observable implements Serializable {
   /**
    * Get the number of stations that has been visited per day.
    *
-   * @return The HashMap that tracks the number of the times of the visiting of the station.
+   * @return The HashMap from epoch day to the number of the times of the visiting of the station.
    */
-  HashMap<String, Integer> getCountStationsPerDay() {
+  HashMap<Integer, Integer> getCountStationsPerDay() {
     return countStationsPerDay;
   }
 
+  /**
+   * Get the number of stations that has been visited from a day to another day.
+   *
+   * @param fromDay The first epoch day of the range.
+   * @param toDay The last epoch day of the range.
+   * @return The number of stations visited in the range.
+   */
+  long countStationsBetween(int fromDay, int toDay) {
+    return stationsSeries.sum(fromDay, toDay);
+  }
+
   /**
    * Get the population of the station.
    *
@@ -523,6 +1023,673 @@ public class TransitManager extends Observable implements Serializable {
     return inStation.size();
   }
 
+  /**
+   * Get the population of one station or stop.
+   *
+   * @param station The station that you want check.
+   * @return The number of cards that tapped in at the station and did not tap out yet.
+   */
+  public int stationPopulation(Station station) {
+    return occupancy.get(station.getId());
+  }
+
+  /**
+   * Get the population of all the stations and stops at once.
+   *
+   * @return The number of cards inside each station, indexed by station id.
+   */
+  public int[] stationPopulationSnapshot() {
+    return occupancy.snapshot();
+  }
+
+  /**
+   * Record a trip from the station where a card entered to the station where it exits. The trip is
+   * batched for the partition of its day as one {origin, destination, 1} record, see flush.
+   *
+   * @param currTime The time in milliseconds that the card exits the station.
+   * @param origin The station that the card entered.
+   * @param destination The station that the card exits.
+   */
+  private void recordFlow(long currTime, Station origin, Station destination) {
+    int day = EpochDay.of(currTime);
+    getFlows(day).add(origin.getId(), destination.getId(), 1);
+    pendingFlows.append(
+        day, out -> OdMatrix.writePair(out, origin.getId(), destination.getId(), 1));
+  }
+
+  /**
+   * Get the origin-destination counts of a day to update, reading its partition the first time.
+   *
+   * @param day The epoch day.
+   * @return The counts of the day, kept in memory.
+   */
+  private synchronized OdMatrix getFlows(int day) {
+    OdMatrix flows = flowsByDay.get(day);
+    if (flows == null) {
+      flows = readFlows(day);
+      // only the day that is tapped is kept in memory, the other days are in their partitions
+      pendingFlows.flush();
+      flowsByDay.clear();
+      flowsByDay.put(day, flows);
+    }
+    return flows;
+  }
+
+  /**
+   * Get the origin-destination counts of a day from memory, or from its partition without keeping
+   * it in memory.
+   *
+   * @param day The epoch day.
+   * @return The counts of the day.
+   */
+  private synchronized OdMatrix readFlows(int day) {
+    OdMatrix flows = flowsByDay.get(day);
+    if (flows != null) {
+      return flows;
+    }
+    if (retention.isExpired(day)) {
+      return new OdMatrix();
+    }
+    flows = DayPartitions.read(OD_PARTITION, day, OdMatrix::readFrom);
+    return (flows == null) ? new OdMatrix() : flows;
+  }
+
+  /**
+   * Rewrite the partition of a day with one record for every pair of stations, instead of one
+   * record for every trip.
+   * The day is no longer kept in memory, it is read from the partition when asked for.
+   *
+   * @param day The epoch day.
+   * @return The size of the partition in bytes, 0 if it was not rewritten.
+   */
+  synchronized long compactFlows(int day) {
+    pendingFlows.flush();
+    OdMatrix flows = readFlows(day);
+    long bytes = (flows.size() == 0) ? 0 : DayPartitions.rewrite(OD_PARTITION, day, flows::writeTo);
+    flowsByDay.remove(day);
+    return bytes;
+  }
+
+  /**
+   * Get the number of trips from a station to another station on a date.
+   *
+   * @param date The date in the format "yyyy-MM-dd".
+   * @param origin The station where the trips started.
+   * @param destination The station where the trips ended.
+   * @return The number of trips, 0 if the date is not valid.
+   */
+  public int countFlow(String date, Station origin, Station destination) {
+    Integer day = EpochDay.parse(date);
+    if (day == null) {
+      return 0;
+    }
+    return readFlows(day).get(origin.getId(), destination.getId());
+  }
+
+  /**
+   * Get the pairs of stations with the most trips from a date to another date. A trip goes from
+   * the station where a card tapped in to the station where it tapped out.
+   *
+   * @param fromDate The first date of the range, in the format "yyyy-MM-dd".
+   * @param toDate The last date of the range, in the format "yyyy-MM-dd".
+   * @param k The number of pairs.
+   * @return The pairs of {origin, destination} with their number of trips, the most trips first;
+   *     empty if a date is not valid.
+   */
+  public ArrayList<Tuple<Tuple<Station, Station>, Integer>> topFlows(
+      String fromDate, String toDate, int k) {
+    ArrayList<Tuple<Tuple<Station, Station>, Integer>> top = new ArrayList<>();
+    Integer fromDay = EpochDay.parse(fromDate);
+    Integer toDay = EpochDay.parse(toDate);
+    if (fromDay == null || toDay == null) {
+      return top;
+    }
+    OdMatrix flows = new OdMatrix();
+    for (int day = fromDay; day <= toDay; day++) {
+      flows.addAll(readFlows(day));
+    }
+    for (int[] flow : flows.top(k)) {
+      top.add(new Tuple<>(new Tuple<>(getStation(flow[0]), getStation(flow[1])), flow[2]));
+    }
+    return top;
+  }
+
+  /**
+   * Count an entry or an exit of a station in the hour of a tap. The tap is batched for the
+   * partition of its day as one {station, hour, kind, 1} record, see flush.
+   *
+   * @param currTime The time in milliseconds of the tap.
+   * @param station The station that the card entered or exits.
+   * @param kind HourlyLoad.ENTER or HourlyLoad.EXIT.
+   */
+  private void recordLoad(long currTime, Station station, byte kind) {
+    int day = EpochDay.of(currTime);
+    int hour = EpochDay.hourOf(currTime);
+    getLoad(day).add(station.getId(), hour, kind, 1);
+    pendingLoad.append(day, out -> HourlyLoad.writeRecord(out, station.getId(), hour, kind, 1));
+  }
+
+  /**
+   * Get the hourly entries and exits of a day to update, reading its partition the first time.
+   *
+   * @param day The epoch day.
+   * @return The counts of the day, kept in memory.
+   */
+  private synchronized HourlyLoad getLoad(int day) {
+    HourlyLoad load = loadByDay.get(day);
+    if (load == null) {
+      load = readLoad(day);
+      // only the day that is tapped is kept in memory, the other days are in their partitions
+      pendingLoad.flush();
+      loadByDay.clear();
+      loadByDay.put(day, load);
+    }
+    return load;
+  }
+
+  /**
+   * Get the hourly entries and exits of a day from memory, or from its partition without keeping
+   * it in memory.
+   *
+   * @param day The epoch day.
+   * @return The counts of the day.
+   */
+  private synchronized HourlyLoad readLoad(int day) {
+    HourlyLoad load = loadByDay.get(day);
+    if (load != null) {
+      return load;
+    }
+    if (retention.isExpired(day)) {
+      return new HourlyLoad(stations.size());
+    }
+    load =
+        DayPartitions.read(HOURLY_PARTITION, day, in -> HourlyLoad.readFrom(in, stations.size()));
+    return (load == null) ? new HourlyLoad(stations.size()) : load;
+  }
+
+  /**
+   * Get the hourly entries and exits of a day to read outside of this manager, such as for a
+   * report. The day that is tapped is copied, so it can change while the copy is read.
+   *
+   * @param day The epoch day.
+   * @return The counts of the day.
+   */
+  synchronized HourlyLoad loadOn(int day) {
+    HourlyLoad load = loadByDay.get(day);
+    return (load == null) ? readLoad(day) : load.copy();
+  }
+
+  /**
+   * Rewrite the hourly partition of a day with one record for every hour of every station,
+   * instead of one record for every tap.
+   * The day is no longer kept in memory, it is read from the partition when asked for.
+   *
+   * @param day The epoch day.
+   * @return The size of the partition in bytes, 0 if it was not rewritten.
+   */
+  synchronized long compactLoad(int day) {
+    pendingLoad.flush();
+    if (!loadByDay.containsKey(day) && !DayPartitions.file(HOURLY_PARTITION, day).exists()) {
+      return 0;
+    }
+    long bytes = DayPartitions.rewrite(HOURLY_PARTITION, day, readLoad(day)::writeTo);
+    loadByDay.remove(day);
+    return bytes;
+  }
+
+  /**
+   * Get the number of cards that entered a station in every hour of a date.
+   *
+   * @param date The date in the format "yyyy-MM-dd".
+   * @param station The station.
+   * @return The entries of every hour from 0 to 23, all 0 if the date is not valid.
+   */
+  public int[] stationEntries(String date, Station station) {
+    Integer day = EpochDay.parse(date);
+    return (day == null) ? new int[HourlyLoad.HOURS] : loadOn(day).entries(station.getId());
+  }
+
+  /**
+   * Get the number of cards that exited a station in every hour of a date.
+   *
+   * @param date The date in the format "yyyy-MM-dd".
+   * @param station The station.
+   * @return The exits of every hour from 0 to 23, all 0 if the date is not valid.
+   */
+  public int[] stationExits(String date, Station station) {
+    Integer day = EpochDay.parse(date);
+    return (day == null) ? new int[HourlyLoad.HOURS] : loadOn(day).exits(station.getId());
+  }
+
+  /**
+   * Get the load curve of a station on a date, that is the entries plus the exits of every hour.
+   *
+   * @param date The date in the format "yyyy-MM-dd".
+   * @param station The station.
+   * @return The load of every hour from 0 to 23, all 0 if the date is not valid.
+   */
+  public int[] stationLoad(String date, Station station) {
+    Integer day = EpochDay.parse(date);
+    return (day == null) ? new int[HourlyLoad.HOURS] : loadOn(day).load(station.getId());
+  }
+
+  /**
+   * Get the busiest hour of a station on a date.
+   *
+   * @param date The date in the format "yyyy-MM-dd".
+   * @param station The station.
+   * @return The hour from 0 to 23 with the most entries and exits, or -1 if the date is not valid
+   *     or there is no tap at the station on that date.
+   */
+  public int peakHour(String date, Station station) {
+    Integer day = EpochDay.parse(date);
+    return (day == null) ? -1 : loadOn(day).peakHour(station.getId());
+  }
+
+  /**
+   * Compare the load curve of a station on a date to the load curve on another date.
+   *
+   * @param date The date in the format "yyyy-MM-dd".
+   * @param otherDate The date compared to, in the format "yyyy-MM-dd".
+   * @param station The station.
+   * @return The load of every hour on date minus the load of the same hour on otherDate.
+   */
+  public int[] compareLoad(String date, String otherDate, Station station) {
+    int[] difference = stationLoad(date, station);
+    int[] other = stationLoad(otherDate, station);
+    for (int hour = 0; hour < HourlyLoad.HOURS; hour++) {
+      difference[hour] -= other[hour];
+    }
+    return difference;
+  }
+
+  /**
+   * Add a card to the distinct cards of a station on the day of a tap. The tap is batched for the
+   * partition of its day only if it changes the sketch of the station, since adding the same card
+   * again never does.
+   *
+   * @param currTime The time in milliseconds of the tap.
+   * @param station The station that the card entered or exits.
+   * @param cardId The id of the card.
+   */
+  private void recordRider(long currTime, Station station, int cardId) {
+    int day = EpochDay.of(currTime);
+    if (getRiders(day).add(station.getId(), cardId)) {
+      pendingRiders.append(day, out -> StationRiders.writeTap(out, station.getId(), cardId));
+    }
+  }
+
+  /**
+   * Get the distinct cards of the stations on a day to update, reading its partition the first
+   * time.
+   *
+   * @param day The epoch day.
+   * @return The sketches of the day, kept in memory.
+   */
+  private synchronized StationRiders getRiders(int day) {
+    StationRiders riders = ridersByDay.get(day);
+    if (riders == null) {
+      riders = readRiders(day);
+      // only the day that is tapped is kept in memory, the other days are in their partitions
+      pendingRiders.flush();
+      ridersByDay.clear();
+      ridersByDay.put(day, riders);
+    }
+    return riders;
+  }
+
+  /**
+   * Get the distinct cards of the stations on a day from memory, or from its partition without
+   * keeping it in memory.
+   *
+   * @param day The epoch day.
+   * @return The sketches of the day.
+   */
+  private synchronized StationRiders readRiders(int day) {
+    StationRiders riders = ridersByDay.get(day);
+    if (riders != null) {
+      return riders;
+    }
+    if (retention.isExpired(day)) {
+      return new StationRiders(stations.size());
+    }
+    riders =
+        DayPartitions.read(
+            RIDERS_PARTITION, day, in -> StationRiders.readFrom(in, stations.size()));
+    return (riders == null) ? new StationRiders(stations.size()) : riders;
+  }
+
+  /**
+   * Rewrite the riders partition of a day with the sketch of every station, instead of one record
+   * for every tap.
+   * The day is no longer kept in memory, it is read from the partition when asked for.
+   *
+   * @param day The epoch day.
+   * @return The size of the partition in bytes, 0 if it was not rewritten.
+   */
+  synchronized long compactRiders(int day) {
+    pendingRiders.flush();
+    if (!ridersByDay.containsKey(day) && !DayPartitions.file(RIDERS_PARTITION, day).exists()) {
+      return 0;
+    }
+    long bytes = DayPartitions.rewrite(RIDERS_PARTITION, day, readRiders(day)::writeTo);
+    ridersByDay.remove(day);
+    return bytes;
+  }
+
+  /**
+   * Get the approximate number of distinct cards that entered or exited a station on a date.
+   *
+   * @param date The date in the format "yyyy-MM-dd".
+   * @param station The station.
+   * @return The number of cards, 0 if the date is not valid.
+   */
+  public long countRiders(String date, Station station) {
+    return countRiders(date, date, station);
+  }
+
+  /**
+   * Get the approximate number of distinct cards that entered or exited a station from a date to
+   * another date, such as a week or a month. A card that used the station on several days is
+   * counted once.
+   *
+   * @param fromDate The first date of the range, in the format "yyyy-MM-dd".
+   * @param toDate The last date of the range, in the format "yyyy-MM-dd".
+   * @param station The station.
+   * @return The number of cards, 0 if a date is not valid.
+   */
+  public long countRiders(String fromDate, String toDate, Station station) {
+    return countRiders(fromDate, toDate, new int[] {station.getId()});
+  }
+
+  /**
+   * Get the approximate number of distinct cards that entered or exited any station of a line
+   * from a date to another date. A card that used several stations of the line is counted once.
+   *
+   * @param lineId The id of the line, see Station.getLineIds.
+   * @param fromDate The first date of the range, in the format "yyyy-MM-dd".
+   * @param toDate The last date of the range, in the format "yyyy-MM-dd".
+   * @return The number of cards, 0 if a date is not valid or there is no such line.
+   */
+  public long countLineRiders(int lineId, String fromDate, String toDate) {
+    return countRiders(fromDate, toDate, lineStations(lineId));
+  }
+
+  /**
+   * Get the number of lines.
+   *
+   * @return The number of lines, which is one more than the largest line id.
+   */
+  public int getLineCount() {
+    return lineCount;
+  }
+
+  /**
+   * Get the ids of the stations of a line.
+   *
+   * @param lineId The id of the line.
+   * @return The station ids, empty if there is no such line.
+   */
+  int[] lineStations(int lineId) {
+    int[] ids = new int[stationsById.length];
+    int size = 0;
+    for (Station station : stationsById) {
+      for (int id : station.getLineIds()) {
+        if (id == lineId) {
+          ids[size++] = station.getId();
+          break;
+        }
+      }
+    }
+    return Arrays.copyOf(ids, size);
+  }
+
+  /**
+   * Merge the sketches of some stations over a range of days and count their distinct cards.
+   *
+   * @param fromDate The first date of the range, in the format "yyyy-MM-dd".
+   * @param toDate The last date of the range, in the format "yyyy-MM-dd".
+   * @param stationIds The ids of the stations.
+   * @return The approximate number of distinct cards, 0 if a date is not valid.
+   */
+  private long countRiders(String fromDate, String toDate, int[] stationIds) {
+    Integer fromDay = EpochDay.parse(fromDate);
+    Integer toDay = EpochDay.parse(toDate);
+    if (fromDay == null || toDay == null) {
+      return 0;
+    }
+    return ridersBetween(fromDay, toDay).count(stationIds);
+  }
+
+  /**
+   * Merge the distinct cards of every station over a range of days, reading each day once. The
+   * result is a new object, so it can be read outside of this manager, such as for a report.
+   *
+   * @param fromDay The first epoch day of the range.
+   * @param toDay The last epoch day of the range.
+   * @return The sketch of every station over the range, empty if the range is empty.
+   */
+  synchronized StationRiders ridersBetween(int fromDay, int toDay) {
+    StationRiders merged = new StationRiders(stations.size());
+    for (int day = fromDay; day <= toDay; day++) {
+      merged.mergeFrom(readRiders(day));
+    }
+    return merged;
+  }
+
+  /**
+   * Add the duration of a trip to the histograms of its pair of stations and its lines, on the day
+   * that the card taps out. The trip is batched for the partition of its day as one record.
+   *
+   * @param currTime The time in milliseconds that the card exits the station.
+   * @param entered The station that the card entered and the time it entered.
+   * @param destination The station that the card exits.
+   */
+  private void recordDuration(long currTime, Tuple<Station, Long> entered, Station destination) {
+    int day = EpochDay.of(currTime);
+    int origin = entered.zero.getId();
+    long seconds = Math.max(0, (currTime - entered.one) / 1000);
+    getDurations(day).add(origin, destination.getId(), seconds);
+    pendingDurations.append(
+        day, out -> DayDurations.writeTrip(out, origin, destination.getId(), seconds));
+  }
+
+  /**
+   * Get the trip durations of a day to update, reading its partition the first time.
+   *
+   * @param day The epoch day.
+   * @return The durations of the day, kept in memory.
+   */
+  private synchronized DayDurations getDurations(int day) {
+    DayDurations durations = durationsByDay.get(day);
+    if (durations == null) {
+      durations = readDurations(day);
+      // only the day that is tapped is kept in memory, the other days are in their partitions
+      pendingDurations.flush();
+      durationsByDay.clear();
+      durationsByDay.put(day, durations);
+    }
+    return durations;
+  }
+
+  /**
+   * Get the trip durations of a day from memory, or from its partition without keeping it in
+   * memory.
+   *
+   * @param day The epoch day.
+   * @return The durations of the day.
+   */
+  private synchronized DayDurations readDurations(int day) {
+    DayDurations durations = durationsByDay.get(day);
+    if (durations != null) {
+      return durations;
+    }
+    if (retention.isExpired(day)) {
+      return new DayDurations(this::sharedLines);
+    }
+    durations =
+        DayPartitions.read(
+            DURATIONS_PARTITION, day, in -> DayDurations.readFrom(in, this::sharedLines));
+    return (durations == null) ? new DayDurations(this::sharedLines) : durations;
+  }
+
+  /**
+   * Rewrite the durations partition of a day with the histogram of every pair of stations,
+   * instead of one record for every trip.
+   * The day is no longer kept in memory, it is read from the partition when asked for.
+   *
+   * @param day The epoch day.
+   * @return The size of the partition in bytes, 0 if it was not rewritten.
+   */
+  synchronized long compactDurations(int day) {
+    pendingDurations.flush();
+    if (!durationsByDay.containsKey(day)
+        && !DayPartitions.file(DURATIONS_PARTITION, day).exists()) {
+      return 0;
+    }
+    long bytes = DayPartitions.rewrite(DURATIONS_PARTITION, day, readDurations(day)::writeTo);
+    durationsByDay.remove(day);
+    return bytes;
+  }
+
+  /**
+   * Get the lines that pass two stations.
+   *
+   * @param origin The id of a station.
+   * @param destination The id of another station.
+   * @return The ids of the lines, empty if no line passes both.
+   */
+  private int[] sharedLines(int origin, int destination) {
+    Station from = getStation(origin);
+    Station to = getStation(destination);
+    if (from == null || to == null) {
+      return new int[0];
+    }
+    int[] toLines = to.getLineIds();
+    int[] shared = new int[toLines.length];
+    int size = 0;
+    for (int lineId : from.getLineIds()) {
+      for (int other : toLines) {
+        if (lineId == other) {
+          shared[size++] = lineId;
+        }
+      }
+    }
+    return Arrays.copyOf(shared, size);
+  }
+
+  /**
+   * Get percentiles of the durations of the trips from a station to another station, from a date
+   * to another date. A percentile is within about 3% of the real duration.
+   *
+   * @param fromDate The first date of the range, in the format "yyyy-MM-dd".
+   * @param toDate The last date of the range, in the format "yyyy-MM-dd".
+   * @param origin The station where the trips started.
+   * @param destination The station where the trips ended.
+   * @param percentiles The percentiles, from 0 to 100, e.g. 50, 95 and 99.
+   * @return The duration in seconds of every percentile, -1 if there is no trip or a date is not
+   *     valid.
+   */
+  public long[] tripDurationPercentiles(
+      String fromDate, String toDate, Station origin, Station destination, double... percentiles) {
+    return durationsBetween(fromDate, toDate)
+        .pairPercentiles(origin.getId(), destination.getId(), percentiles);
+  }
+
+  /**
+   * Get percentiles of the durations of the trips between two stations of a line, from a date to
+   * another date. A percentile is within about 3% of the real duration.
+   *
+   * @param lineId The id of the line, see Station.getLineIds.
+   * @param fromDate The first date of the range, in the format "yyyy-MM-dd".
+   * @param toDate The last date of the range, in the format "yyyy-MM-dd".
+   * @param percentiles The percentiles, from 0 to 100, e.g. 50, 95 and 99.
+   * @return The duration in seconds of every percentile, -1 if there is no trip or a date is not
+   *     valid.
+   */
+  public long[] lineDurationPercentiles(
+      int lineId, String fromDate, String toDate, double... percentiles) {
+    return durationsBetween(fromDate, toDate).linePercentiles(lineId, percentiles);
+  }
+
+  /**
+   * Merge the trip durations over a range of days, reading each day once. The result is a new
+   * object, so it can be read outside of this manager, such as for a report.
+   *
+   * @param fromDate The first date of the range, in the format "yyyy-MM-dd".
+   * @param toDate The last date of the range, in the format "yyyy-MM-dd".
+   * @return The durations of the range, empty if the range is empty or a date is not valid.
+   */
+  synchronized DayDurations durationsBetween(String fromDate, String toDate) {
+    DayDurations merged = new DayDurations(this::sharedLines);
+    Integer fromDay = EpochDay.parse(fromDate);
+    Integer toDay = EpochDay.parse(toDate);
+    if (fromDay != null && toDay != null) {
+      for (int day = fromDay; day <= toDay; day++) {
+        merged.mergeFrom(readDurations(day));
+      }
+    }
+    return merged;
+  }
+
+  /**
+   * Get the stations with the most taps in and out over a recent window of time, which ends at
+   * the latest tap. The counts are kept in memory only, from the taps since the system started.
+   *
+   * @param window The window of time.
+   * @param k The number of stations, at most BUSIEST_CAPACITY.
+   * @return The stations with their approximate number of taps, the most taps first.
+   */
+  public ArrayList<Tuple<Station, Long>> busiestStations(TrafficWindow window, int k) {
+    ArrayList<Tuple<Station, Long>> busiest = new ArrayList<>();
+    for (long[] station : busyStations.top(window, k)) {
+      busiest.add(new Tuple<>(getStation((int) station[0]), station[1]));
+    }
+    return busiest;
+  }
+
+  /**
+   * Get the pairs of stations with the most trips over a recent window of time, which ends at the
+   * latest tap. A trip is counted when the card taps out.
+   *
+   * @param window The window of time.
+   * @param k The number of pairs, at most BUSIEST_CAPACITY.
+   * @return The pairs of {origin, destination} with their approximate number of trips, the most
+   *     trips first.
+   */
+  public ArrayList<Tuple<Tuple<Station, Station>, Long>> busiestFlows(
+      TrafficWindow window, int k) {
+    ArrayList<Tuple<Tuple<Station, Station>, Long>> busiest = new ArrayList<>();
+    for (long[] flow : busyFlows.top(window, k)) {
+      Station origin = getStation((int) (flow[0] >>> 32));
+      Station destination = getStation((int) flow[0]);
+      busiest.add(new Tuple<>(new Tuple<>(origin, destination), flow[1]));
+    }
+    return busiest;
+  }
+
+  /**
+   * Get the number of stations, which is one more than the largest station id.
+   *
+   * @return The number of stations and stops.
+   */
+  int stationCount() {
+    return stationsById.length;
+  }
+
+  /**
+   * Get the station with an id.
+   *
+   * @param stationId The id of the station.
+   * @return The station, or null if there is no station with the id.
+   */
+  public Station getStation(int stationId) {
+    if (stationId < 0 || stationId >= stationsById.length) {
+      return null;
+    }
+    return stationsById[stationId];
+  }
+
   /**
    * Check if one card is in the station.
    *
@@ -537,62 +1704,119 @@ public class TransitManager extends Observable implements Serializable {
    * Check when card enters the station.
    *
    * @param cardId The card's id that you want check.
-   * @return The Tuple that shows the station and time the card enters.
+   * @return The Tuple that shows the station and time in milliseconds the card enters.
    */
-  public Tuple<Station, Calendar> inStationInfo(int cardId) {
+  public Tuple<Station, Long> inStationInfo(int cardId) {
     return inStation.get(cardId);
   }
 
   /**
-   * Delete the trip that exist for a long time.
+   * Copy the most recent trips of a card that started before a time, see TripCursor.Source. The
+   * copy can be walked while the card taps and the expired trips are purged. The trips are found
+   * with a binary search, since they are in the order they started.
    *
-   * @param currTime The current time.
+   * @param cardId The id of the card.
+   * @param before The time in milliseconds, Long.MAX_VALUE for the most recent trips.
+   * @param n The largest number of trips.
+   * @return At most n trips in the order they started, empty if there is no such trip.
    */
-  void deleteOldTripRecord(Calendar currTime) {
-    long tenYearsInMilli = 315_569_520_000L;
-    for (ArrayList<ContinuousTrip> record : this.tripRecord.values()) {
-      //use an iterator to remove a old trip record
-      Iterator<ContinuousTrip> iterator = record.iterator();
-      ContinuousTrip curr;
-      while (iterator.hasNext()) {
-        curr = iterator.next();
-        Calendar oldTime = (Calendar) curr.getFront().getEnterTime().clone();
-        //only take the date to compare with current time
-        oldTime.set(Calendar.MILLISECOND, 0);
-        oldTime.set(Calendar.SECOND, 0);
-        oldTime.set(Calendar.MINUTE, 0);
-        oldTime.set(Calendar.HOUR, 0);
-        if ((currTime.getTimeInMillis() - oldTime.getTimeInMillis()) > tenYearsInMilli) {
-          iterator.remove();
-        } else {
-          break;
-        }
+  synchronized ArrayList<ContinuousTrip> tripsBefore(int cardId, long before, int n) {
+    ArrayList<ContinuousTrip> trips = tripRecord.get(cardId);
+    if (trips == null) {
+      return new ArrayList<>();
+    }
+    int end = trips.size();
+    // an empty trip is always the last one of a card
+    if (end > 0 && trips.get(end - 1).getFront() == null) {
+      end--;
+    }
+    int low = 0;
+    while (low < end) {
+      int middle = (low + end) >>> 1;
+      if (trips.get(middle).getFront().getEnterTime() < before) {
+        low = middle + 1;
+      } else {
+        end = middle;
       }
     }
-    serializeTrips();
+    return new ArrayList<>(trips.subList(Math.max(0, low - n), low));
   }
 
   /**
-   * Delete the record of number of stations user passed per day that exist for a long time.
+   * Get the ids of the cards that have trips.
    *
-   * @param currTime The current time.
+   * @return A copy of the ids.
    */
-  void deleteCountStationsPerDay(Calendar currTime) {
-    long teyYearsInMilli = 315_569_520_000L;
-    for (String key : this.countStationsPerDay.keySet()) {
-      try {
-        //change the date time from string to Calendar
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-        Calendar cal1 = Calendar.getInstance();
-        cal1.setTime(sdf.parse(key));
-        if ((currTime.getTimeInMillis() - cal1.getTimeInMillis()) > teyYearsInMilli) {
-          this.countStationsPerDay.put(key, 0);
-        }
-      } catch (ParseException e) {
-        e.printStackTrace();
+  synchronized List<Integer> tripCardIds() {
+    return new ArrayList<>(tripRecord.keySet());
+  }
+
+  /**
+   * Delete the trips of some cards that started before a day. The trips of a card are in the
+   * order they started, so only its expired trips are walked.
+   *
+   * @param cardIds The ids of the cards.
+   * @param firstKeptDay The first epoch day that is kept.
+   * @return The number of trips deleted.
+   */
+  synchronized int deleteTripsBefore(List<Integer> cardIds, int firstKeptDay) {
+    int deleted = 0;
+    for (int cardId : cardIds) {
+      ArrayList<ContinuousTrip> trips = tripRecord.get(cardId);
+      if (trips == null) {
+        continue;
+      }
+      int expired = 0;
+      // an empty trip is always the last one of a card
+      while (expired < trips.size()
+          && trips.get(expired).getFront() != null
+          && EpochDay.of(trips.get(expired).getFront().getEnterTime()) < firstKeptDay) {
+        expired++;
+      }
+      if (expired > 0) {
+        trips.subList(0, expired).clear();
+        forgetRecentTrips(cardId);
+        deleted += expired;
       }
     }
+    return deleted;
+  }
+
+  /**
+   * Save the trips after they are purged.
+   *
+   * @return The size of the file of the trips in bytes.
+   */
+  synchronized long saveTrips() {
     serializeTrips();
+    return new File("data-Trips.out").length();
+  }
+
+  /**
+   * Delete the records kept by day that are before the first kept day of the retention: the
+   * number of stations passed, the day index of the trips and the days loaded from partitions.
+   * None of them walks the cards or the trips.
+   */
+  synchronized void dropExpiredDays() {
+    int firstKeptDay = retention.firstKeptDay();
+    if (countStationsPerDay.keySet().removeIf(retention::isExpired)) {
+      serializeDateToStations();
+    }
+    stationsSeries.clearBefore(firstKeptDay);
+    tripIndex.removeBefore(firstKeptDay);
+    flowsByDay.keySet().removeIf(retention::isExpired);
+    loadByDay.keySet().removeIf(retention::isExpired);
+    ridersByDay.keySet().removeIf(retention::isExpired);
+    durationsByDay.keySet().removeIf(retention::isExpired);
+  }
+
+  /**
+   * Get the oldest day that a trip started on.
+   *
+   * @return The epoch day, Integer.MAX_VALUE if there is no trip.
+   */
+  int oldestTripDay() {
+    return tripIndex.firstDay();
   }
   /**
    * Read configuration.txt to create a graph of stations then save it.
@@ -2,12 +2,17 @@ package transitSystem;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
 /** The TransitPass that can be used in the transit system. */
 public abstract class TransitPass implements Serializable {
 
+    /**
+     * The version of the serialized form, fixed to the value computed for the first form so that
+     * the cards saved by the first version can still be read.
+     */
+    private static final long serialVersionUID = -3595326132286903276L;
+
     /** The id of a card. */
     int cardId;
     /** The status of a card, whether it is suspended. */
@@ -35,19 +40,18 @@ public abstract class TransitPass implements Serializable {
     /**
      * Get the cost per day of the TransitPass.
      *
-     * @return The CostPerDay of the card.
+     * @return The CostPerDay of the card, keyed by epoch day.
      */
-    abstract HashMap<String, Double[]> getCostPerDay();
+    abstract DailyLedger getCostPerDay();
 
     /**
      * Deduct a mount of money from the TransitPass.
      *
      * @param fare The amount of money that need to be deducted.
-     * @param time The time of the deduction happened.
-     * @param accountManager The AccountManager that keep tracks all the account.
+     * @param time The epoch day of the deduction happened.
      * @return The message that shows the remaining balance.
      */
-    abstract String tap(double fare, String time, AccountManager accountManager);
+    abstract String tap(double fare, int time);
 
     /**
      * Get the type of this TransitPass.
@@ -112,10 +116,10 @@ public abstract class TransitPass implements Serializable {
     /**
      * Updates the cost information of a card every time the money is deducted.
      *
-     * @param time The specific time that the money is deducted.
+     * @param time The epoch day that the money is deducted.
      * @param fare The fare which increase the total cost of this card.
      */
-    abstract void updateCardCostInformation(String time, double fare);
+    abstract void updateCardCostInformation(int time, double fare);
 
     /**
      * Check the balance of the card.
@@ -1,7 +1,10 @@
 package transitSystem;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Calendar;
+import java.util.Date;
 
 /**
  * A Trip class that represents every transit activity. It stores each trip information, such as
@@ -9,18 +12,24 @@ import java.util.Calendar;
  */
 public class Trip implements Serializable {
 
+  /**
+   * The version of the serialized form, fixed to the value computed for the form that kept the
+   * times in a Calendar, so that the trips saved then can still be read.
+   */
+  private static final long serialVersionUID = -3132563059749491690L;
+
   /** The station that a customer enters. */
   private Station enterStation;
   /** The station that a customer exits. */
   private Station exitStation;
-  /** The time a customer enters a station. */
-  private Calendar enterTime;
-  /** The time a customer exits a station. */
-  private Calendar exitTime;
+  /** The time in milliseconds a customer enters a station, 0 if not entered. */
+  private long enterMillis;
+  /** The time in milliseconds a customer exits a station, 0 if not exited. */
+  private long exitMillis;
   /** All of the next stations. */
   private Trip next;
-  /** A Strategy that calculate transit fare. */
-  final FareStrategy STRATEGY;
+  /** A Strategy that calculate transit fare, only set when the trip is created or read. */
+  FareStrategy STRATEGY;
 
   /**
    * Creates a new Trip and initializes a fare strategy.
@@ -37,9 +46,9 @@ public class Trip implements Serializable {
    * @param station The station that a customer enters.
    * @param enterTime The time when the customer entering the station.
    */
-  void setEnter(Station station, Calendar enterTime) {
+  void setEnter(Station station, long enterTime) {
     this.enterStation = station;
-    this.enterTime = enterTime;
+    this.enterMillis = enterTime;
   }
 
   /**
@@ -48,9 +57,9 @@ public class Trip implements Serializable {
    * @param station The station that a customer exits.
    * @param exitTime The time when the customer exiting the station.
    */
-  void setExit(Station station, Calendar exitTime) {
+  void setExit(Station station, long exitTime) {
     this.exitStation = station;
-    this.exitTime = exitTime;
+    this.exitMillis = exitTime;
   }
 
   /**
@@ -58,8 +67,17 @@ public class Trip implements Serializable {
    *
    * @return The time when a customer entering a station.
    */
-  Calendar getEnterTime() {
-    return enterTime;
+  long getEnterTime() {
+    return enterMillis;
+  }
+
+  /**
+   * Gets the time when a customer exiting a station.
+   *
+   * @return The time when a customer exiting a station.
+   */
+  long getExitTime() {
+    return exitMillis;
   }
 
   /**
@@ -128,16 +146,16 @@ public class Trip implements Serializable {
       exitStationType = this.exitStation.getStationType();
     }
     // check if the exit time is available
-    if (this.exitTime == null) {
+    if (this.exitStation == null) {
       exitTime = "null";
     } else {
-      exitTime = this.exitTime.getTime().toString();
+      exitTime = new Date(this.exitMillis).toString();
     }
     // check if the enter time is available
-    if (this.enterTime == null) {
+    if (this.enterStation == null) {
       enterTime = "null";
     } else {
-      enterTime = this.enterTime.getTime().toString();
+      enterTime = new Date(this.enterMillis).toString();
     }
     return "enterStation: "
         + enterStationLocation
@@ -155,4 +173,37 @@ public class Trip implements Serializable {
         + "exitTime : "
         + exitTime;
   }
+
+  /**
+   * Read a trip. The trips saved before the times were kept in milliseconds have the times in a
+   * Calendar under the names "enterTime" and "exitTime", which are converted.
+   *
+   * @param in The stream the trip is read from.
+   * @throws IOException If the trip cannot be read.
+   * @throws ClassNotFoundException If a class of the trip is not found.
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    ObjectInputStream.GetField fields = in.readFields();
+    enterStation = (Station) fields.get("enterStation", null);
+    exitStation = (Station) fields.get("exitStation", null);
+    next = (Trip) fields.get("next", null);
+    STRATEGY = (FareStrategy) fields.get("STRATEGY", null);
+    if (fields.defaulted("enterMillis")) {
+      enterMillis = toMillis((Calendar) fields.get("enterTime", null));
+      exitMillis = toMillis((Calendar) fields.get("exitTime", null));
+    } else {
+      enterMillis = fields.get("enterMillis", 0L);
+      exitMillis = fields.get("exitMillis", 0L);
+    }
+  }
+
+  /**
+   * Convert a saved time to milliseconds.
+   *
+   * @param time The time, null if it was not set.
+   * @return The time in milliseconds, 0 if it was not set.
+   */
+  private static long toMillis(Calendar time) {
+    return (time == null) ? 0 : time.getTimeInMillis();
+  }
 }
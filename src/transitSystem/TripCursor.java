@@ -0,0 +1,143 @@
+package transitSystem;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Walks the trips of several cards from the most recent to the oldest, one page at a time. The
+ * trips of every card are in the order they started, so the cursor merges the cards from the end
+ * of their lists with a heap that holds the next trip of every card. The trips are read from
+ * their Source a few at a time for every card, only when the cursor reaches them, so the cursor
+ * never copies all the trips of a card. A trip that is started after the cursor was created is not
+ * returned.
+ */
+public class TripCursor {
+
+  /** Reads the trips of a card, such as the TransitManager under its lock. */
+  interface Source {
+
+    /**
+     * Get the most recent trips of a card that started before a time. The empty trip at the end
+     * of the card's list is left out.
+     *
+     * @param cardId The id of the card.
+     * @param before The time in milliseconds, Long.MAX_VALUE for the most recent trips.
+     * @param n The largest number of trips.
+     * @return At most n trips in the order they started, empty if there is no such trip.
+     */
+    List<ContinuousTrip> tripsBefore(int cardId, long before, int n);
+  }
+
+  /** The number of trips of a card that are read from the source at a time. */
+  static final int PAGE_SIZE = 16;
+
+  /** Reads the trips. */
+  private final Source source;
+
+  /** The id of every card. */
+  private final int[] cardIds;
+
+  /** The trips of every card that were read last, in the order they started. */
+  private final ArrayList<List<ContinuousTrip>> pages = new ArrayList<>();
+
+  /** The {card index, index in its page} of the next trip of every card, the most recent on top. */
+  private final PriorityQueue<int[]> heap;
+
+  /** The time in milliseconds before which trips are not returned. */
+  private final long notBefore;
+
+  /** The number of trips returned so far. */
+  private int returned;
+
+  /**
+   * Create a cursor at the most recent trip of some cards.
+   *
+   * @param source Reads the trips of the cards.
+   * @param cards The ids of the cards.
+   * @param notBefore The time in milliseconds before which trips are not returned.
+   */
+  TripCursor(Source source, Collection<Integer> cards, long notBefore) {
+    this.source = source;
+    this.notBefore = notBefore;
+    cardIds = new int[cards.size()];
+    heap =
+        new PriorityQueue<>(
+            Math.max(1, cardIds.length), (a, b) -> Long.compare(startOf(b), startOf(a)));
+    int card = 0;
+    for (int cardId : cards) {
+      cardIds[card] = cardId;
+      pages.add(source.tripsBefore(cardId, Long.MAX_VALUE, PAGE_SIZE));
+      push(card, pages.get(card).size() - 1);
+      card++;
+    }
+  }
+
+  /**
+   * Check if there are older trips.
+   *
+   * @return True if next returns at least one trip.
+   */
+  public boolean hasNext() {
+    return !heap.isEmpty();
+  }
+
+  /**
+   * Get the next trips, from the most recent to the oldest.
+   *
+   * @param n The largest number of trips.
+   * @return At most n trips, empty if there is no older trip.
+   */
+  public ArrayList<ContinuousTrip> next(int n) {
+    ArrayList<ContinuousTrip> page = new ArrayList<>(Math.max(0, Math.min(n, 64)));
+    while (page.size() < n && !heap.isEmpty()) {
+      int[] next = heap.poll();
+      ContinuousTrip trip = pages.get(next[0]).get(next[1]);
+      page.add(trip);
+      if (next[1] > 0) {
+        push(next[0], next[1] - 1);
+      } else if (pages.get(next[0]).size() == PAGE_SIZE) {
+        // the page is used up, read the trips before its oldest one
+        List<ContinuousTrip> older =
+            source.tripsBefore(cardIds[next[0]], trip.getFront().getEnterTime(), PAGE_SIZE);
+        pages.set(next[0], older);
+        push(next[0], older.size() - 1);
+      }
+    }
+    returned += page.size();
+    return page;
+  }
+
+  /**
+   * Get the number of trips returned so far, which is the number of the last trip returned.
+   *
+   * @return The number of trips.
+   */
+  public int getReturned() {
+    return returned;
+  }
+
+  /**
+   * Put the trip of a card at an index of its page on the heap, unless it started before
+   * notBefore.
+   *
+   * @param card The index of the card.
+   * @param index The index of the trip, -1 if the card has no more trips.
+   */
+  private void push(int card, int index) {
+    if (index >= 0 && pages.get(card).get(index).getFront().getEnterTime() >= notBefore) {
+      heap.add(new int[] {card, index});
+    }
+  }
+
+  /**
+   * Get the start time of a trip on the heap.
+   *
+   * @param entry The {card index, trip index in its page} of the trip.
+   * @return The time in milliseconds that the trip started.
+   */
+  private long startOf(int[] entry) {
+    return pages.get(entry[0]).get(entry[1]).getFront().getEnterTime();
+  }
+}
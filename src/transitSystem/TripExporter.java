@@ -0,0 +1,447 @@
+package transitSystem;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Writes the trips of the transit system as CSV or as a columnar binary file. Every trip of a
+ * continuous trip is one row, written as soon as it is read, so the memory used does not depend on
+ * the number of trips. The trips should be exported while the system is closed, since a tap while
+ * the trips are read changes them. It can be run from the command line in the directory of the
+ * data files:
+ *
+ * <pre>
+ * java transitSystem.TripExporter --out trips.csv [--format csv|columns] [--from yyyy-MM-dd]
+ *     [--to yyyy-MM-dd] [--card id] [--station id]
+ * </pre>
+ *
+ * <p>The columnar file starts with MAGIC, VERSION, the number of stations and the id, location and
+ * type of every station. Then come blocks of at most BLOCK_ROWS rows, each one the number of rows
+ * followed by every column in turn: card id, trip number, leg, enter station id, enter time, exit
+ * station id and exit time, as ints and longs. A block of 0 rows ends the file. A station id is -1
+ * and a time is 0 if the card did not tap there yet.
+ */
+public class TripExporter {
+
+  /** The formats of an export. */
+  public enum Format {
+    /** Comma-separated values with a header line. */
+    CSV,
+    /** The columnar binary format. */
+    COLUMNS
+  }
+
+  /** The first int of a columnar file, "TRIP". */
+  static final int MAGIC = 0x54524950;
+
+  /** The version of the columnar format. */
+  static final byte VERSION = 1;
+
+  /** The largest number of rows of a columnar block. */
+  static final int BLOCK_ROWS = 8192;
+
+  /** The size of the output buffer. */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /** The header line of a CSV export. */
+  private static final String CSV_HEADER =
+      "card_id,trip,leg,enter_station_id,enter_location,enter_type,enter_time,"
+          + "exit_station_id,exit_location,exit_type,exit_time";
+
+  /** The TransitManager that keeps the trips. */
+  private final TransitManager transitManager;
+
+  /**
+   * Create an exporter of the trips of a transit system.
+   *
+   * @param transitManager The TransitManager that keeps the trips.
+   */
+  public TripExporter(TransitManager transitManager) {
+    this.transitManager = transitManager;
+  }
+
+  /**
+   * Write the trips that match all the filters. A filter that is null matches every trip. The trips
+   * that entered before the first day kept by the retention are never written.
+   *
+   * @param out The stream to write to. It is flushed but not closed.
+   * @param format The format of the export.
+   * @param fromDate The first date that a trip may enter on, in the format "yyyy-MM-dd".
+   * @param toDate The last date that a trip may enter on, in the format "yyyy-MM-dd".
+   * @param cardId The card of the trips.
+   * @param station The station that the trips enter or exit.
+   * @return The number of trips written.
+   * @throws IOException If the stream cannot be written.
+   * @throws IllegalArgumentException If a date is not valid.
+   */
+  public long export(
+      OutputStream out,
+      Format format,
+      String fromDate,
+      String toDate,
+      Integer cardId,
+      Station station)
+      throws IOException {
+    long fromTime = (fromDate == null) ? Long.MIN_VALUE : EpochDay.startMillis(parseDay(fromDate));
+    // the trips before the retention are deleted, even if they are not purged yet
+    fromTime = Math.max(fromTime, transitManager.firstKeptMillis());
+    long toTime =
+        (toDate == null) ? Long.MAX_VALUE : EpochDay.startMillis(parseDay(toDate) + 1) - 1;
+    int stationId = (station == null) ? -1 : station.getId();
+    RowSink sink = (format == Format.CSV) ? new CsvSink(out) : new ColumnSink(out);
+
+    long rows = 0;
+    Map<Integer, ArrayList<ContinuousTrip>> trips = transitManager.getTripRecord();
+    if (cardId != null) {
+      // only the trips of one card are read
+      ArrayList<ContinuousTrip> record = trips.get(cardId);
+      trips = (record == null) ? Collections.emptyMap() : Collections.singletonMap(cardId, record);
+    }
+    for (Map.Entry<Integer, ArrayList<ContinuousTrip>> entry : trips.entrySet()) {
+      ArrayList<ContinuousTrip> record = entry.getValue();
+      for (int number = 0; number < record.size(); number++) {
+        Trip leg = record.get(number).getFront();
+        // the trips of a card are in the order they started, and an empty one is always the last
+        if (leg == null || leg.getEnterTime() > toTime) {
+          break;
+        }
+        for (int legNumber = 0; leg != null; legNumber++, leg = leg.getNext()) {
+          if (leg.getEnterTime() < fromTime || leg.getEnterTime() > toTime) {
+            continue;
+          }
+          if (stationId >= 0 && idOf(leg.getEnterStation()) != stationId
+              && idOf(leg.getExitStation()) != stationId) {
+            continue;
+          }
+          sink.row(entry.getKey(), number, legNumber, leg);
+          rows++;
+        }
+      }
+    }
+    sink.finish();
+    return rows;
+  }
+
+  /**
+   * Export the trips from the command line.
+   *
+   * @param args The options, see the class comment.
+   */
+  public static void main(String[] args) {
+    String outFile = null;
+    Format format = Format.CSV;
+    String fromDate = null;
+    String toDate = null;
+    Integer cardId = null;
+    Integer stationId = null;
+    try {
+      for (int i = 0; i < args.length; i += 2) {
+        if (i + 1 >= args.length) {
+          throw new IllegalArgumentException("Missing value of " + args[i]);
+        }
+        String value = args[i + 1];
+        switch (args[i]) {
+          case "--out":
+            outFile = value;
+            break;
+          case "--format":
+            format = Format.valueOf(value.toUpperCase());
+            break;
+          case "--from":
+            parseDay(value);
+            fromDate = value;
+            break;
+          case "--to":
+            parseDay(value);
+            toDate = value;
+            break;
+          case "--card":
+            cardId = Integer.parseInt(value);
+            break;
+          case "--station":
+            stationId = Integer.parseInt(value);
+            break;
+          default:
+            throw new IllegalArgumentException("Unknown option " + args[i]);
+        }
+      }
+      if (outFile == null) {
+        throw new IllegalArgumentException("Missing --out");
+      }
+    } catch (IllegalArgumentException ex) {
+      System.err.println(ex.getMessage());
+      System.err.println(
+          "Usage: TripExporter --out file [--format csv|columns] [--from yyyy-MM-dd]"
+              + " [--to yyyy-MM-dd] [--card id] [--station id]");
+      System.exit(2);
+      return;
+    }
+    // start the system as the login does, so the retention of the last close applies
+    AdminUser adminUser = new AdminUser();
+    adminUser.initializeSystem();
+    TransitManager transitManager = adminUser.getTransitManager();
+    Station station = null;
+    if (stationId != null) {
+      station = transitManager.getStation(stationId);
+      if (station == null) {
+        System.err.println("Unknown station " + stationId);
+        System.exit(2);
+        return;
+      }
+    }
+    try (OutputStream out = new FileOutputStream(outFile)) {
+      long rows =
+          new TripExporter(transitManager).export(out, format, fromDate, toDate, cardId, station);
+      System.out.println(rows + " trips written to " + outFile);
+    } catch (IOException ex) {
+      System.err.println(ex.getMessage());
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Parse a date.
+   *
+   * @param date The date in the format "yyyy-MM-dd".
+   * @return The epoch day.
+   */
+  private static int parseDay(String date) {
+    Integer day = EpochDay.parse(date);
+    if (day == null) {
+      throw new IllegalArgumentException("Invalid date: " + date);
+    }
+    return day;
+  }
+
+  /**
+   * Get the id of a station.
+   *
+   * @param station The station, may be null.
+   * @return The id, or -1 if the station is null.
+   */
+  private static int idOf(Station station) {
+    return (station == null) ? -1 : station.getId();
+  }
+
+  /** Writes the rows of an export. */
+  private interface RowSink {
+
+    /**
+     * Write one trip.
+     *
+     * @param cardId The card of the trip.
+     * @param number The index of the continuous trip among the trips of the card.
+     * @param leg The index of the trip in its continuous trip.
+     * @param trip The trip.
+     * @throws IOException If the stream cannot be written.
+     */
+    void row(int cardId, int number, int leg, Trip trip) throws IOException;
+
+    /**
+     * Write what is left and flush the stream.
+     *
+     * @throws IOException If the stream cannot be written.
+     */
+    void finish() throws IOException;
+  }
+
+  /** Writes every trip as a line of comma-separated values. */
+  private static class CsvSink implements RowSink {
+
+    /** The buffered output. */
+    private final Writer writer;
+
+    /**
+     * Create the sink and write the header line.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If the stream cannot be written.
+     */
+    CsvSink(OutputStream out) throws IOException {
+      writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+      writer.write(CSV_HEADER);
+      writer.write('\n');
+    }
+
+    @Override
+    public void row(int cardId, int number, int leg, Trip trip) throws IOException {
+      writer.write(Integer.toString(cardId));
+      writer.write(',');
+      writer.write(Integer.toString(number));
+      writer.write(',');
+      writer.write(Integer.toString(leg));
+      writeStation(trip.getEnterStation(), trip.getEnterTime());
+      writeStation(trip.getExitStation(), trip.getExitTime());
+      writer.write('\n');
+    }
+
+    @Override
+    public void finish() throws IOException {
+      writer.flush();
+    }
+
+    /**
+     * Write the id, location, type and time of a tap, all empty if there is no tap.
+     *
+     * @param station The station of the tap, may be null.
+     * @param time The time in milliseconds of the tap.
+     * @throws IOException If the stream cannot be written.
+     */
+    private void writeStation(Station station, long time) throws IOException {
+      if (station == null) {
+        writer.write(",,,,");
+        return;
+      }
+      writer.write(',');
+      writer.write(Integer.toString(station.getId()));
+      writer.write(',');
+      writeText(station.getLocation());
+      writer.write(',');
+      writeText(station.getStationType());
+      writer.write(',');
+      writer.write(Long.toString(time));
+    }
+
+    /**
+     * Write a text value, quoted if it contains a comma, a quote or a line break.
+     *
+     * @param text The value.
+     * @throws IOException If the stream cannot be written.
+     */
+    private void writeText(String text) throws IOException {
+      if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0) {
+        writer.write(text);
+        return;
+      }
+      writer.write('"');
+      writer.write(text.replace("\"", "\"\""));
+      writer.write('"');
+    }
+  }
+
+  /** Writes the trips in blocks of columns, see the class comment. */
+  private class ColumnSink implements RowSink {
+
+    /** The buffered output. */
+    private final DataOutputStream out;
+
+    /** The number of rows of the current block. */
+    private int rows;
+
+    /** The card id of every row of the block. */
+    private final int[] cardIds = new int[BLOCK_ROWS];
+
+    /** The continuous trip number of every row of the block. */
+    private final int[] numbers = new int[BLOCK_ROWS];
+
+    /** The leg of every row of the block. */
+    private final int[] legs = new int[BLOCK_ROWS];
+
+    /** The enter station id of every row of the block. */
+    private final int[] enterStations = new int[BLOCK_ROWS];
+
+    /** The enter time of every row of the block. */
+    private final long[] enterTimes = new long[BLOCK_ROWS];
+
+    /** The exit station id of every row of the block. */
+    private final int[] exitStations = new int[BLOCK_ROWS];
+
+    /** The exit time of every row of the block. */
+    private final long[] exitTimes = new long[BLOCK_ROWS];
+
+    /**
+     * Create the sink and write the header with the stations.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If the stream cannot be written.
+     */
+    ColumnSink(OutputStream out) throws IOException {
+      this.out = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+      this.out.writeInt(MAGIC);
+      this.out.writeByte(VERSION);
+      int stationCount = transitManager.stationCount();
+      this.out.writeInt(stationCount);
+      for (int id = 0; id < stationCount; id++) {
+        Station station = transitManager.getStation(id);
+        this.out.writeInt(id);
+        this.out.writeUTF(station == null ? "" : station.getLocation());
+        this.out.writeUTF(station == null ? "" : station.getStationType());
+      }
+    }
+
+    @Override
+    public void row(int cardId, int number, int leg, Trip trip) throws IOException {
+      cardIds[rows] = cardId;
+      numbers[rows] = number;
+      legs[rows] = leg;
+      enterStations[rows] = idOf(trip.getEnterStation());
+      enterTimes[rows] = trip.getEnterTime();
+      exitStations[rows] = idOf(trip.getExitStation());
+      exitTimes[rows] = trip.getExitTime();
+      rows++;
+      if (rows == BLOCK_ROWS) {
+        writeBlock();
+      }
+    }
+
+    @Override
+    public void finish() throws IOException {
+      if (rows > 0) {
+        writeBlock();
+      }
+      out.writeInt(0);
+      out.flush();
+    }
+
+    /**
+     * Write the rows of the block column by column and start a new block.
+     *
+     * @throws IOException If the stream cannot be written.
+     */
+    private void writeBlock() throws IOException {
+      out.writeInt(rows);
+      writeColumn(cardIds);
+      writeColumn(numbers);
+      writeColumn(legs);
+      writeColumn(enterStations);
+      writeColumn(enterTimes);
+      writeColumn(exitStations);
+      writeColumn(exitTimes);
+      rows = 0;
+    }
+
+    /**
+     * Write the rows of an int column.
+     *
+     * @param column The column.
+     * @throws IOException If the stream cannot be written.
+     */
+    private void writeColumn(int[] column) throws IOException {
+      for (int i = 0; i < rows; i++) {
+        out.writeInt(column[i]);
+      }
+    }
+
+    /**
+     * Write the rows of a long column.
+     *
+     * @param column The column.
+     * @throws IOException If the stream cannot be written.
+     */
+    private void writeColumn(long[] column) throws IOException {
+      for (int i = 0; i < rows; i++) {
+        out.writeLong(column[i]);
+      }
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package transitSystem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The continuous trips of all the cards by the epoch day they started on. The days are kept in a
+ * sorted map and the trips of a day in the order they started, so the trips of a range of days are
+ * found in O(log n + k) time for k trips. A trip is indexed by reference, so it stays valid when
+ * older trips of its card are deleted.
+ */
+final class TripIndex {
+
+  /** The trips that started on one day. */
+  private static final class DayTrips {
+
+    /** The number of trips. */
+    int size;
+
+    /** The card of every trip. */
+    int[] cardIds = new int[4];
+
+    /** The trips. */
+    ContinuousTrip[] trips = new ContinuousTrip[4];
+
+    /**
+     * Add a trip.
+     *
+     * @param cardId The card of the trip.
+     * @param trip The trip.
+     */
+    void add(int cardId, ContinuousTrip trip) {
+      if (size == trips.length) {
+        cardIds = Arrays.copyOf(cardIds, size * 2);
+        trips = Arrays.copyOf(trips, size * 2);
+      }
+      cardIds[size] = cardId;
+      trips[size] = trip;
+      size++;
+    }
+  }
+
+  /** The trips of every day that has trips. */
+  private final TreeMap<Integer, DayTrips> days = new TreeMap<>();
+
+  /**
+   * Index a trip that just started.
+   *
+   * @param cardId The card of the trip.
+   * @param trip The trip, with its first enter already added.
+   */
+  void add(int cardId, ContinuousTrip trip) {
+    int day = EpochDay.of(trip.getFront().getEnterTime());
+    days.computeIfAbsent(day, key -> new DayTrips()).add(cardId, trip);
+  }
+
+  /**
+   * Index every trip of every card, as when the trips are loaded.
+   *
+   * @param tripRecord The trips of every card, in the order they started.
+   * @return The index.
+   */
+  static TripIndex of(Map<Integer, ? extends List<ContinuousTrip>> tripRecord) {
+    ArrayList<long[]> starts = new ArrayList<>();
+    ArrayList<ContinuousTrip> trips = new ArrayList<>();
+    for (Map.Entry<Integer, ? extends List<ContinuousTrip>> entry : tripRecord.entrySet()) {
+      for (ContinuousTrip trip : entry.getValue()) {
+        if (trip.getFront() != null) {
+          starts.add(new long[] {trip.getFront().getEnterTime(), entry.getKey(), trips.size()});
+          trips.add(trip);
+        }
+      }
+    }
+    // the trips of a day are added in the order they started, as they are by tapIn
+    starts.sort((a, b) -> Long.compare(a[0], b[0]));
+    TripIndex index = new TripIndex();
+    for (long[] start : starts) {
+      index.add((int) start[1], trips.get((int) start[2]));
+    }
+    return index;
+  }
+
+  /**
+   * Get the trips that started from a day to another day.
+   *
+   * @param fromDay The first epoch day.
+   * @param toDay The last epoch day.
+   * @return The {card id, trip} of every trip, in the order they started.
+   */
+  ArrayList<Tuple<Integer, ContinuousTrip>> between(int fromDay, int toDay) {
+    ArrayList<Tuple<Integer, ContinuousTrip>> found = new ArrayList<>();
+    if (fromDay > toDay) {
+      return found;
+    }
+    for (DayTrips day : days.subMap(fromDay, true, toDay, true).values()) {
+      for (int i = 0; i < day.size; i++) {
+        found.add(new Tuple<>(day.cardIds[i], day.trips[i]));
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Get the oldest day that has trips.
+   *
+   * @return The epoch day, Integer.MAX_VALUE if there is no trip.
+   */
+  int firstDay() {
+    return days.isEmpty() ? Integer.MAX_VALUE : days.firstKey();
+  }
+
+  /**
+   * Delete the trips of the days before a day.
+   *
+   * @param firstKeptDay The epoch day of the oldest trips that are kept.
+   */
+  void removeBefore(int firstKeptDay) {
+    days.headMap(firstKeptDay, false).clear();
+  }
+
+  /**
+   * Find the first trip of a card that started at or after a time, with a binary search.
+   *
+   * @param cardTrips The trips of the card, in the order they started; only the last one may be
+   *     empty.
+   * @param time The time in milliseconds.
+   * @return The index of the trip, or the number of trips that are not empty if there is none.
+   */
+  static int firstStartingAt(List<ContinuousTrip> cardTrips, long time) {
+    int low = 0;
+    int high = cardTrips.size();
+    if (high > 0 && cardTrips.get(high - 1).getFront() == null) {
+      high--;
+    }
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (cardTrips.get(middle).getFront().getEnterTime() < time) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+}
@@ -7,6 +7,6 @@ public class TripTimeComparator implements Comparator<ContinuousTrip> {
     /** To compare two ContinuousTrip */
     @Override
     public int compare(ContinuousTrip o1, ContinuousTrip o2) {
-        return o1.getFront().getEnterTime().compareTo(o2.getFront().getEnterTime()) ;
+        return Long.compare(o1.getFront().getEnterTime(), o2.getFront().getEnterTime());
     }
 }
@@ -1,5 +1,7 @@
 package transitSystem;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -9,7 +11,14 @@ import java.util.*;
  * A WeeklyPass class that represents a transit WeeklyPass that can be used infinite times in a
  * week.
  */
-public class WeeklyPass extends TransitPass implements Serializable, Observer {
+public class WeeklyPass extends TransitPass implements Serializable, EventDispatcher.Listener {
+
+  /**
+   * The version of the serialized form, fixed to the value computed for the form that kept the
+   * cost in a HashMap by date string, so that the cards saved then can still be read.
+   */
+  private static final long serialVersionUID = 5152288144381724111L;
+
   /** The start date of a WeeklyPass. */
   private Calendar startDate;
 
@@ -17,7 +26,7 @@ public class WeeklyPass extends TransitPass implements Serializable, Observer {
   private Calendar currentDate;
 
   /** The CostPerDay of the WeeklyPass. */
-  private HashMap<String, Double[]> costPerDay = new HashMap<>();
+  private DailyLedger costPerDay = new DailyLedger();
 
   /**
    * Creates a new WeeklyPass. Initialize its startDate of the WeeklyPass, and id. Set this new
@@ -44,7 +53,7 @@ public class WeeklyPass extends TransitPass implements Serializable, Observer {
    * @return The CostPerDay of the card.
    */
   @Override
-  HashMap<String, Double[]> getCostPerDay() {
+  DailyLedger getCostPerDay() {
     return costPerDay;
   }
 
@@ -52,16 +61,13 @@ public class WeeklyPass extends TransitPass implements Serializable, Observer {
    * Deduct a mount of money from the WeeklyPass.
    *
    * @param fare The amount of money that need to be deducted.
-   * @param time The time of the deduction happened.
-   * @param accountManager The AccountManager that keep tracks all the account.
+   * @param time The epoch day of the deduction happened.
    * @return The message that shows the remaining balance.
    */
   @Override
-  String tap(double fare, String time, AccountManager accountManager) {
+  String tap(double fare, int time) {
     // update the card cost information on the specific date.
     updateCardCostInformation(time, fare);
-    // update account cost information in the specific date
-    accountManager.updateAccountCostInformation(this.getOwnerEmail(), time, fare);
     return " days remaining " + this.calculateDaysRest();
   }
 
@@ -78,22 +84,12 @@ public class WeeklyPass extends TransitPass implements Serializable, Observer {
   /**
    * Updates the cost information of a card every time the money is deducted.
    *
-   * @param time The specific time that the money is deducted.
+   * @param time The epoch day that the money is deducted.
    * @param fare The fare which increase the total cost of this card.
    */
   @Override
-  void updateCardCostInformation(String time, double fare) {
-    if (this.costPerDay.containsKey(time)) {
-      double totalCost = costPerDay.get(time)[1];
-      totalCost += fare;
-      costPerDay.get(time)[0]++;
-      costPerDay.get(time)[1] = totalCost;
-    } else {
-      Double[] date = new Double[2];
-      date[0] = 1.0;
-      date[1] = fare;
-      costPerDay.put(time, date);
-    }
+  void updateCardCostInformation(int time, double fare) {
+    costPerDay.add(time, 1, fare);
   }
 
   /**
@@ -119,9 +115,9 @@ public class WeeklyPass extends TransitPass implements Serializable, Observer {
       costs.append(0);
       times.append(0);
     } else {
-      for (String key : costPerDay.keySet()) {
-        costs.append(costPerDay.get(key)[1]);
-        times.append(costPerDay.get(key)[0].intValue());
+      for (int i = 0; i < costPerDay.size(); i++) {
+        costs.append(costPerDay.amountAt(i));
+        times.append(costPerDay.countAt(i));
         costs.append(" ");
       }
     }
@@ -159,13 +155,12 @@ public class WeeklyPass extends TransitPass implements Serializable, Observer {
   }
 
   /**
-   * Update the information of this WeeklyPass.
+   * Update the current date of this WeeklyPass.
    *
-   * @param o The Observable class.
-   * @param arg The object.
+   * @param arg The new open date as a "yyyy-MM-dd" string.
    */
   @Override
-  public void update(Observable o, Object arg) {
+  public void onEvent(Object arg) {
     SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
     Date date;
     Calendar cal = Calendar.getInstance();
@@ -177,4 +172,18 @@ public class WeeklyPass extends TransitPass implements Serializable, Observer {
     }
     this.currentDate = cal;
   }
+
+  /**
+   * Read a card, converting the cost that was saved in a HashMap by date string.
+   *
+   * @param in The stream the card is read from.
+   * @throws IOException If the card cannot be read.
+   * @throws ClassNotFoundException If a class of the card is not found.
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    ObjectInputStream.GetField fields = in.readFields();
+    startDate = (Calendar) fields.get("startDate", null);
+    currentDate = (Calendar) fields.get("currentDate", null);
+    costPerDay = DailyLedger.fromSaved(fields.get("costPerDay", null));
+  }
 }